@@ -0,0 +1,28 @@
+#!/usr/bin/env bash
+# Throughput of POST /rest/ships/batch against a running application.
+#   bench/batch_create.sh [base-url] [sizes...]
+#   bench/batch_create.sh http://localhost:8080 10000 100000
+set -euo pipefail
+
+BASE_URL=${1:-http://localhost:8080}
+shift || true
+SIZES=${*:-10000 100000}
+
+for size in $SIZES; do
+    payload=$(mktemp)
+    awk -v n="$size" 'BEGIN {
+        printf "[";
+        for (i = 0; i < n; i++) {
+            if (i > 0) printf ",";
+            printf "{\"name\":\"Bench %d\",\"planet\":\"Planet %d\",\"shipType\":\"%s\",\"prodDate\":%d,\"isUsed\":%s,\"speed\":%.2f,\"crewSize\":%d}",
+                i, i % 50, (i % 3 == 0 ? "TRANSPORT" : (i % 3 == 1 ? "MILITARY" : "MERCHANT")),
+                26194438800000 + (i % 200) * 31556952000, (i % 2 ? "true" : "false"), 0.01 + (i % 98) / 100, 1 + i % 9999;
+        }
+        printf "]";
+    }' > "$payload"
+
+    seconds=$(curl -s -o /dev/null -w '%{time_total}' -H 'Content-Type: application/json' \
+        --data-binary "@$payload" "$BASE_URL/rest/ships/batch")
+    awk -v n="$size" -v t="$seconds" 'BEGIN { printf "%8d ships  %8.2f s  %10.0f ships/s\n", n, t, n / t }'
+    rm -f "$payload"
+done
@@ -0,0 +1,56 @@
+-- Full scan vs. index cost for the /rest/ships filters on a 1M-row fleet.
+-- Requires MySQL 8.0.18+ (EXPLAIN ANALYZE). Run against a scratch schema:
+--   mysql -uroot -proot < bench/ship_indexes.sql
+-- The application's migrations (db/migration) must have been applied to
+-- cosmoport_bench first, e.g. by pointing a Flyway CLI run at it.
+
+CREATE DATABASE IF NOT EXISTS cosmoport_bench;
+USE cosmoport_bench;
+
+SET SESSION cte_max_recursion_depth = 1000000;
+
+TRUNCATE TABLE ship;
+
+INSERT INTO ship (name, planet, shipType, prodDate, isUsed, speed, crewSize, rating)
+WITH RECURSIVE seq (n) AS (SELECT 1 UNION ALL SELECT n + 1 FROM seq WHERE n < 1000000)
+SELECT CONCAT('Ship ', n),
+       ELT(1 + n % 8, 'Mercury', 'Venus', 'Earth', 'Mars', 'Jupiter', 'Saturn', 'Uranus', 'Neptune'),
+       ELT(1 + n % 3, 'TRANSPORT', 'MILITARY', 'MERCHANT'),
+       MAKEDATE(2800 + n % 220, 1),
+       n % 2,
+       ROUND(0.01 + (n * 7919 % 99) / 100, 2),
+       1 + n * 104729 % 9999,
+       ROUND(80 * (0.01 + (n * 7919 % 99) / 100) * IF(n % 2, 0.5, 1) / (3019 - (2800 + n % 220) + 1), 2)
+FROM seq;
+
+ANALYZE TABLE ship;
+
+-- shipType tab, default order, first page
+EXPLAIN ANALYZE SELECT * FROM ship IGNORE INDEX (idx_ship_type_used_speed, idx_ship_type_used_prodDate, idx_ship_type_used_rating)
+WHERE shipType = 'MILITARY' AND isUsed = 0 ORDER BY id LIMIT 3;
+EXPLAIN ANALYZE SELECT * FROM ship
+WHERE shipType = 'MILITARY' AND isUsed = 0 ORDER BY id LIMIT 3;
+
+-- rating range ordered by rating
+EXPLAIN ANALYZE SELECT * FROM ship IGNORE INDEX (idx_ship_rating, idx_ship_type_used_rating)
+WHERE rating BETWEEN 5 AND 6 ORDER BY rating, id LIMIT 20;
+EXPLAIN ANALYZE SELECT * FROM ship
+WHERE rating BETWEEN 5 AND 6 ORDER BY rating, id LIMIT 20;
+
+-- production year window ordered by date
+EXPLAIN ANALYZE SELECT * FROM ship IGNORE INDEX (idx_ship_prodDate, idx_ship_type_used_prodDate)
+WHERE prodDate >= '3010-01-01' AND prodDate <= '3012-01-01' ORDER BY prodDate, id LIMIT 20;
+EXPLAIN ANALYZE SELECT * FROM ship
+WHERE prodDate >= '3010-01-01' AND prodDate <= '3012-01-01' ORDER BY prodDate, id LIMIT 20;
+
+-- count with a crew size range
+EXPLAIN ANALYZE SELECT COUNT(*) FROM ship IGNORE INDEX (idx_ship_crewSize)
+WHERE crewSize BETWEEN 100 AND 200;
+EXPLAIN ANALYZE SELECT COUNT(*) FROM ship
+WHERE crewSize BETWEEN 100 AND 200;
+
+-- keyset page deep into the speed order
+EXPLAIN ANALYZE SELECT * FROM ship IGNORE INDEX (idx_ship_speed, idx_ship_type_used_speed)
+WHERE speed > 0.9 OR (speed = 0.9 AND id > 900000) ORDER BY speed, id LIMIT 20;
+EXPLAIN ANALYZE SELECT * FROM ship
+WHERE speed > 0.9 OR (speed = 0.9 AND id > 900000) ORDER BY speed, id LIMIT 20;
@@ -1,11 +1,15 @@
 package com.space.config;
 
+import com.zaxxer.hikari.HikariDataSource;
+import org.flywaydb.core.Flyway;
+import org.hibernate.cache.jcache.ConfigSettings;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.DependsOn;
 import org.springframework.dao.annotation.PersistenceExceptionTranslationPostProcessor;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
-import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
 import org.springframework.orm.jpa.JpaTransactionManager;
 import org.springframework.orm.jpa.JpaVendorAdapter;
 import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
@@ -24,28 +28,87 @@ import java.util.Properties;
 public class AppConfig {
 
     @Bean
+    @DependsOn("flyway")
     public LocalContainerEntityManagerFactoryBean entityManagerFactory() {
         LocalContainerEntityManagerFactoryBean em = new LocalContainerEntityManagerFactoryBean();
-        em.setDataSource(dataSource());
+        // Flyway and the pool metrics keep using the primary directly
+        em.setDataSource(ReadWriteRoutingDataSource.ENABLED ? new LazyConnectionDataSourceProxy(routingDataSource()) : dataSource());
         em.setPackagesToScan("com.space.model");
 
         JpaVendorAdapter vendorAdapter = new HibernateJpaVendorAdapter();
         em.setJpaVendorAdapter(vendorAdapter);
         em.setJpaProperties(additionalProperties());
+        if (CacheConfig.ENABLED) {
+            em.getJpaPropertyMap().put(ConfigSettings.CACHE_MANAGER, CacheConfig.createCacheManager());
+        }
 
         return em;
     }
 
-    @Bean
+    @Bean(destroyMethod = "close")
     public DataSource dataSource() {
-        DriverManagerDataSource dataSource = new DriverManagerDataSource();
+        HikariDataSource dataSource = pool("cosmoport", "jdbc:mysql://localhost:3306/cosmoport?serverTimezone=UTC", poolMetrics());
+        dataSource.setRegisterMbeans(true);
+        return dataSource;
+    }
+
+    @Bean
+    public PoolMetrics poolMetrics() {
+        return new PoolMetrics();
+    }
+
+    @Bean
+    public ReadWriteRoutingDataSource routingDataSource() {
+        ReadWriteRoutingDataSource routing = new ReadWriteRoutingDataSource(dataSource(), poolMetrics(),
+                ReadWriteRoutingDataSource.STICKY_MILLIS, ReadWriteRoutingDataSource.RETRY_MILLIS);
+        for (int i = 0; i < ReadWriteRoutingDataSource.REPLICA_URLS.size(); i++) {
+            PoolMetrics metrics = new PoolMetrics();
+            HikariDataSource replica = pool("cosmoport-replica-" + (i + 1), ReadWriteRoutingDataSource.REPLICA_URLS.get(i), metrics);
+            replica.setReadOnly(true);
+            routing.addReplica("replica-" + (i + 1), replica, metrics);
+        }
+        return routing;
+    }
+
+    private static HikariDataSource pool(String name, String jdbcUrl, PoolMetrics metrics) {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setPoolName(name);
         dataSource.setDriverClassName("com.mysql.cj.jdbc.Driver");
-        dataSource.setUrl("jdbc:mysql://localhost:3306/cosmoport?serverTimezone=UTC");
+        dataSource.setJdbcUrl(jdbcUrl);
         dataSource.setUsername("root");
         dataSource.setPassword("root");
+
+        dataSource.setMinimumIdle(4);
+        dataSource.setMaximumPoolSize(16);
+        dataSource.setConnectionTimeout(5_000);
+        dataSource.setValidationTimeout(1_000);
+        dataSource.setIdleTimeout(300_000);
+        dataSource.setMaxLifetime(1_500_000);
+        dataSource.setLeakDetectionThreshold(30_000);
+
+        dataSource.addDataSourceProperty("cachePrepStmts", "true");
+        dataSource.addDataSourceProperty("prepStmtCacheSize", "250");
+        dataSource.addDataSourceProperty("prepStmtCacheSqlLimit", "2048");
+        dataSource.addDataSourceProperty("useServerPrepStmts", "true");
+        dataSource.addDataSourceProperty("useLocalSessionState", "true");
+        dataSource.addDataSourceProperty("rewriteBatchedStatements", "true");
+        dataSource.addDataSourceProperty("useCursorFetch", "true");
+
+        dataSource.setMetricsTrackerFactory(metrics);
+        metrics.bind(dataSource);
         return dataSource;
     }
 
+    @Bean(initMethod = "migrate")
+    public Flyway flyway() {
+        return Flyway.configure()
+                .dataSource(dataSource())
+                .locations("classpath:db/migration")
+                .baselineOnMigrate(true)
+                .baselineVersion("1")
+                .load();
+    }
+
     @Bean
     public PlatformTransactionManager transactionManager(EntityManagerFactory emf) {
         JpaTransactionManager transactionManager = new JpaTransactionManager();
@@ -62,6 +125,20 @@ public class AppConfig {
     private Properties additionalProperties() {
         Properties properties = new Properties();
         properties.setProperty("hibernate.dialect", "org.hibernate.dialect.MySQL5Dialect");
+        properties.setProperty("hibernate.jdbc.batch_size", "50");
+        properties.setProperty("hibernate.order_inserts", "true");
+        properties.setProperty("hibernate.order_updates", "true");
+        // room for every compiled filter shape of ShipQueryPlans
+        properties.setProperty("hibernate.query.plan_cache_max_size", "4096");
+        if (CacheConfig.ENABLED) {
+            properties.setProperty("hibernate.cache.use_second_level_cache", "true");
+            properties.setProperty("hibernate.cache.use_query_cache", "true");
+            properties.setProperty("hibernate.cache.region.factory_class", ConfigSettings.SIMPLE_FACTORY_NAME);
+            properties.setProperty(ConfigSettings.MISSING_CACHE_STRATEGY, "fail");
+            properties.setProperty("hibernate.generate_statistics", "true");
+        } else {
+            properties.setProperty("hibernate.cache.use_second_level_cache", "false");
+        }
 
         return properties;
     }
@@ -0,0 +1,51 @@
+package com.space.config;
+
+import com.space.model.Ship;
+import org.ehcache.config.builders.CacheConfigurationBuilder;
+import org.ehcache.config.builders.ExpiryPolicyBuilder;
+import org.ehcache.config.builders.ResourcePoolsBuilder;
+import org.ehcache.core.config.DefaultConfiguration;
+import org.ehcache.jsr107.Eh107Configuration;
+import org.ehcache.jsr107.EhcacheCachingProvider;
+import org.hibernate.cache.spi.RegionFactory;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.net.URI;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class CacheConfig {
+    public static final boolean ENABLED = Boolean.getBoolean("cosmoport.cache");
+
+    private static final long SHIP_ENTRIES = 100_000;
+    private static final long QUERY_ENTRIES = 10_000;
+    private static final long TIMESTAMP_ENTRIES = 1_000;
+    private static final Duration QUERY_TTL = Duration.ofMinutes(10);
+    private static final AtomicInteger MANAGERS = new AtomicInteger();
+
+    private CacheConfig() {
+    }
+
+    // every context gets its own manager, the provider's default one is shared by the whole JVM and a
+    // second context would find its caches already created. Hibernate closes it with the session factory
+    public static CacheManager createCacheManager() {
+        EhcacheCachingProvider provider = (EhcacheCachingProvider) Caching.getCachingProvider(EhcacheCachingProvider.class.getName());
+        ClassLoader classLoader = CacheConfig.class.getClassLoader();
+        CacheManager cacheManager = provider.getCacheManager(URI.create("cosmoport:second-level-cache:" + MANAGERS.incrementAndGet()),
+                new DefaultConfiguration(classLoader));
+
+        cacheManager.createCache(Ship.class.getName(), Eh107Configuration.fromEhcacheCacheConfiguration(
+                CacheConfigurationBuilder.newCacheConfigurationBuilder(Object.class, Object.class,
+                        ResourcePoolsBuilder.heap(SHIP_ENTRIES))));
+        cacheManager.createCache(RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME, Eh107Configuration.fromEhcacheCacheConfiguration(
+                CacheConfigurationBuilder.newCacheConfigurationBuilder(Object.class, Object.class,
+                        ResourcePoolsBuilder.heap(QUERY_ENTRIES))
+                        .withExpiry(ExpiryPolicyBuilder.timeToLiveExpiration(QUERY_TTL))));
+        // one entry per table; it must never be evicted before the query results it guards
+        cacheManager.createCache(RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME, Eh107Configuration.fromEhcacheCacheConfiguration(
+                CacheConfigurationBuilder.newCacheConfigurationBuilder(Object.class, Object.class,
+                        ResourcePoolsBuilder.heap(TIMESTAMP_ENTRIES))));
+        return cacheManager;
+    }
+}
@@ -0,0 +1,36 @@
+package com.space.config;
+
+import com.space.service.ImportReport;
+import com.space.service.ShipImporter;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+// java -cp <war classpath> com.space.config.ImportCommand ships.csv|ships.ndjson [CSV|NDJSON]
+public class ImportCommand {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("usage: ImportCommand <file> [CSV|NDJSON]");
+            System.exit(2);
+        }
+        String file = args[0];
+        ShipImporter.Format format = args.length > 1
+                ? ShipImporter.Format.valueOf(args[1].toUpperCase())
+                : file.toLowerCase().endsWith(".csv") ? ShipImporter.Format.CSV : ShipImporter.Format.NDJSON;
+
+        try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext(AppConfig.class);
+             InputStream input = Files.newInputStream(Paths.get(file))) {
+            ShipImporter importer = context.getBean(ShipImporter.class);
+            ImportReport report = importer.importShips(input, format, progress -> System.out.println(progress));
+
+            System.out.println("done: " + report);
+            for (ImportReport.Reject reject : report.getRejects()) {
+                System.out.println("  line " + reject.getLine() + ": " + reject.getReason());
+            }
+        }
+    }
+}
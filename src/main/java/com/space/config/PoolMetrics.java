@@ -0,0 +1,80 @@
+package com.space.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+public class PoolMetrics implements MetricsTrackerFactory {
+    private final LongAdder acquired = new LongAdder();
+    private final LongAdder acquireNanos = new LongAdder();
+    private final LongAccumulator maxAcquireNanos = new LongAccumulator(Long::max, 0);
+    private final LongAdder usageMillis = new LongAdder();
+    private final LongAdder created = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+
+    private HikariDataSource dataSource;
+
+    public void bind(HikariDataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    @Override
+    public IMetricsTracker create(String poolName, PoolStats poolStats) {
+        return new IMetricsTracker() {
+            @Override
+            public void recordConnectionCreatedMillis(long connectionCreatedMillis) {
+                created.increment();
+            }
+
+            @Override
+            public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+                acquired.increment();
+                acquireNanos.add(elapsedAcquiredNanos);
+                maxAcquireNanos.accumulate(elapsedAcquiredNanos);
+            }
+
+            @Override
+            public void recordConnectionUsageMillis(long elapsedBorrowedMillis) {
+                usageMillis.add(elapsedBorrowedMillis);
+            }
+
+            @Override
+            public void recordConnectionTimeout() {
+                timeouts.increment();
+            }
+        };
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        HikariPoolMXBean pool = dataSource == null ? null : dataSource.getHikariPoolMXBean();
+        if (pool != null) {
+            stats.put("active", pool.getActiveConnections());
+            stats.put("idle", pool.getIdleConnections());
+            stats.put("total", pool.getTotalConnections());
+            stats.put("awaiting", pool.getThreadsAwaitingConnection());
+        }
+        if (dataSource != null) {
+            stats.put("minIdle", dataSource.getMinimumIdle());
+            stats.put("maxSize", dataSource.getMaximumPoolSize());
+        }
+
+        long count = acquired.sum();
+        stats.put("acquired", count);
+        stats.put("waitMillisTotal", TimeUnit.NANOSECONDS.toMillis(acquireNanos.sum()));
+        stats.put("waitMillisAvg", count == 0 ? 0.0 : acquireNanos.sum() / 1_000_000.0 / count);
+        stats.put("waitMillisMax", TimeUnit.NANOSECONDS.toMillis(maxAcquireNanos.get()));
+        stats.put("usageMillisAvg", count == 0 ? 0.0 : (double) usageMillis.sum() / count);
+        stats.put("connectionsCreated", created.sum());
+        stats.put("timeouts", timeouts.sum());
+        return stats;
+    }
+}
@@ -0,0 +1,265 @@
+package com.space.config;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+// sends reads to read replicas and read-write transactions to the primary, enabled with
+// -Dcosmoport.readReplicas=<jdbc url>[,<jdbc url>...]; replicas use the primary's schema and credentials.
+// A read is a read-only transaction or a connection taken outside any transaction, which the cached
+// search paths do and where JPA cannot write. Replicas take turns, one that fails to hand out a
+// connection is left out for cosmoport.readReplicas.retryMillis while its reads go to the primary.
+// Replication is assumed to catch up within cosmoport.readReplicas.stickyMillis, and for that long
+// the reads of the client that wrote stay on the primary, on this instance and others: within a
+// request, on later ones through a cookie, outside requests on the same thread. Work handed to
+// another thread takes the stickiness along as a value (withStickiness), writes done on another
+// thread are credited to the client by stickToPrimary(). Other clients keep reading the replicas;
+// ShipResultCache and ShipVersions wait out the same time before they cache or tag a new version
+// Transactions only become read-only after they took their connection, so the router must sit behind
+// a LazyConnectionDataSourceProxy that takes it at the first statement
+public class ReadWriteRoutingDataSource extends AbstractDataSource implements DisposableBean {
+    public static final List<String> REPLICA_URLS = Arrays.stream(System.getProperty("cosmoport.readReplicas", "").split(","))
+            .map(String::trim)
+            .filter(url -> !url.isEmpty())
+            .collect(Collectors.toList());
+    public static final boolean ENABLED = !REPLICA_URLS.isEmpty();
+    public static final long STICKY_MILLIS = Long.getLong("cosmoport.readReplicas.stickyMillis", 2000);
+    public static final long RETRY_MILLIS = Long.getLong("cosmoport.readReplicas.retryMillis", 5000);
+
+    static final String STICKY_COOKIE = "cosmoport-primary-until";
+    private static final String STICKY_ATTRIBUTE = ReadWriteRoutingDataSource.class.getName() + ".primaryUntil";
+
+    private final Target primary;
+    private final List<Target> replicas = new ArrayList<>();
+    private final AtomicInteger next = new AtomicInteger();
+    private final long stickyMillis;
+    private final long retryMillis;
+    private final ThreadLocal<Long> primaryUntil = new ThreadLocal<>();
+
+    private final LongAdder stickyReads = new LongAdder();
+    private final LongAdder fallbacks = new LongAdder();
+
+    public ReadWriteRoutingDataSource(DataSource primary, PoolMetrics primaryMetrics, long stickyMillis, long retryMillis) {
+        this.primary = new Target("primary", primary, primaryMetrics);
+        this.stickyMillis = stickyMillis;
+        this.retryMillis = retryMillis;
+    }
+
+    public void addReplica(String name, DataSource dataSource, PoolMetrics metrics) {
+        replicas.add(new Target(name, dataSource, metrics));
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return connect(null, null);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return connect(username, password);
+    }
+
+    private Connection connect(String username, String password) throws SQLException {
+        long now = System.currentTimeMillis();
+        Target target = route(now);
+        if (target != primary) {
+            try {
+                Connection connection = target.connect(username, password);
+                target.connections.increment();
+                return connection;
+            } catch (SQLFeatureNotSupportedException e) {
+                // the pools take no per-call credentials, which says nothing about the replica
+                throw e;
+            } catch (SQLException e) {
+                target.failures.increment();
+                target.downUntil = now + retryMillis;
+                fallbacks.increment();
+            }
+        }
+        Connection connection = primary.connect(username, password);
+        primary.connections.increment();
+        return connection;
+    }
+
+    private Target route(long now) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            stickToPrimary(now);
+            return primary;
+        }
+        if (replicas.isEmpty()) {
+            return primary;
+        }
+        if (stuckToPrimary(now)) {
+            stickyReads.increment();
+            return primary;
+        }
+        for (int i = 0; i < replicas.size(); i++) {
+            Target replica = replicas.get(Math.floorMod(next.getAndIncrement(), replicas.size()));
+            if (replica.downUntil <= now) {
+                return replica;
+            }
+        }
+        fallbacks.increment();
+        return primary;
+    }
+
+    // credits the current client with writes done on another thread, e.g. an import's writer
+    public void stickToPrimary() {
+        stickToPrimary(System.currentTimeMillis());
+    }
+
+    // to be called on the thread that serves the client: the returned work reads with the client's
+    // stickiness on whatever thread runs it, without touching the request there
+    public <T> Supplier<T> withStickiness(Supplier<T> work) {
+        if (replicas.isEmpty()) {
+            return work;
+        }
+        long until = stickyUntil();
+        return () -> {
+            Long previous = primaryUntil.get();
+            primaryUntil.set(until);
+            try {
+                return work.get();
+            } finally {
+                if (previous == null) {
+                    primaryUntil.remove();
+                } else {
+                    primaryUntil.set(previous);
+                }
+            }
+        };
+    }
+
+    private void stickToPrimary(long now) {
+        // without replicas there is nothing to stay away from
+        if (replicas.isEmpty()) {
+            return;
+        }
+        long until = now + stickyMillis;
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (!(attributes instanceof ServletRequestAttributes)) {
+            primaryUntil.set(until);
+            return;
+        }
+        HttpServletRequest request = ((ServletRequestAttributes) attributes).getRequest();
+        HttpServletResponse response = ((ServletRequestAttributes) attributes).getResponse();
+        boolean first = request.getAttribute(STICKY_ATTRIBUTE) == null;
+        request.setAttribute(STICKY_ATTRIBUTE, until);
+        if (first && response != null && !response.isCommitted()) {
+            Cookie cookie = new Cookie(STICKY_COOKIE, Long.toString(until));
+            cookie.setPath("/");
+            cookie.setHttpOnly(true);
+            cookie.setMaxAge((int) TimeUnit.MILLISECONDS.toSeconds(stickyMillis) + 1);
+            response.addCookie(cookie);
+        }
+    }
+
+    private boolean stuckToPrimary(long now) {
+        return stickyUntil() > now;
+    }
+
+    // until when the current client reads from the primary, 0 if it has not written
+    private long stickyUntil() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (!(attributes instanceof ServletRequestAttributes)) {
+            Long until = primaryUntil.get();
+            return until == null ? 0 : until;
+        }
+        HttpServletRequest request = ((ServletRequestAttributes) attributes).getRequest();
+        Object until = request.getAttribute(STICKY_ATTRIBUTE);
+        if (until instanceof Long) {
+            return (Long) until;
+        }
+        Cookie[] cookies = request.getCookies();
+        if (cookies != null) {
+            for (Cookie cookie : cookies) {
+                if (STICKY_COOKIE.equals(cookie.getName())) {
+                    try {
+                        return Long.parseLong(cookie.getValue());
+                    } catch (NumberFormatException e) {
+                        return 0;
+                    }
+                }
+            }
+        }
+        return 0;
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", !replicas.isEmpty());
+        stats.put("stickyMillis", stickyMillis);
+        stats.put("stickyReads", stickyReads.sum());
+        stats.put("fallbacks", fallbacks.sum());
+        long now = System.currentTimeMillis();
+        stats.put(primary.name, primary.snapshot(now));
+        for (Target replica : replicas) {
+            stats.put(replica.name, replica.snapshot(now));
+        }
+        return stats;
+    }
+
+    // the replica pools belong to the router, the primary is closed by its own bean
+    @Override
+    public void destroy() throws IOException {
+        for (Target replica : replicas) {
+            if (replica.dataSource instanceof Closeable) {
+                ((Closeable) replica.dataSource).close();
+            }
+        }
+    }
+
+    private static final class Target {
+        final String name;
+        final DataSource dataSource;
+        final PoolMetrics metrics;
+        final LongAdder connections = new LongAdder();
+        final LongAdder failures = new LongAdder();
+        volatile long downUntil;
+
+        Target(String name, DataSource dataSource, PoolMetrics metrics) {
+            this.name = name;
+            this.dataSource = dataSource;
+            this.metrics = metrics;
+        }
+
+        Connection connect(String username, String password) throws SQLException {
+            return username == null && password == null ? dataSource.getConnection() : dataSource.getConnection(username, password);
+        }
+
+        Map<String, Object> snapshot(long now) {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("connections", connections.sum());
+            stats.put("failures", failures.sum());
+            stats.put("down", downUntil > now);
+            if (metrics != null) {
+                stats.put("pool", metrics.snapshot());
+            }
+            return stats;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.space.config;
+
+import com.space.service.RatingRecomputeJob;
+import com.space.service.RecomputeProgress;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+// java -Dcosmoport.rating.year=<year> -cp <war classpath> com.space.config.RecomputeRatingsCommand [parallelism] [fromId]
+public class RecomputeRatingsCommand {
+
+    public static void main(String[] args) {
+        int parallelism = args.length > 0 ? Integer.parseInt(args[0]) : RatingRecomputeJob.DEFAULT_PARALLELISM;
+        long fromId = args.length > 1 ? Long.parseLong(args[1]) : 0;
+
+        try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext(AppConfig.class)) {
+            RatingRecomputeJob job = context.getBean(RatingRecomputeJob.class);
+            RecomputeProgress result = job.run(parallelism, RatingRecomputeJob.DEFAULT_CHUNK_SIZE, fromId,
+                    progress -> System.out.println(progress));
+
+            System.out.println("done: " + result);
+            if (result.getState() == RecomputeProgress.State.FAILED) {
+                System.out.println("resume with: RecomputeRatingsCommand " + parallelism + " " + result.getResumeFromId());
+                System.exit(1);
+            }
+        }
+    }
+}
@@ -0,0 +1,354 @@
+package com.space.config;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.space.controller.ShipPage;
+import com.space.model.Ship;
+import com.space.model.ShipType;
+import com.space.model.ShipView;
+import com.space.service.VirtualThreads;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractGenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+// writes Ship, ShipView, ShipPage and lists of them straight through the Jackson streaming API,
+// with no reflection or bean introspection. The output is byte for byte what the field-visibility
+// ObjectMapper in WebConfig produces: fields in declaration order, nulls kept, dates as epoch
+// millis. Everything else still goes to the Jackson converter registered after this one.
+// The body is built in a per-thread buffer so Content-Length is known up front, and bodies of at
+// least cosmoport.json.gzipMinBytes (default 8192, -1 disables) are gzipped for clients that
+// accept it, with a per-thread Deflater at BEST_SPEED: ship JSON compresses well even
+// there and the default level costs several times more CPU per page. A gzipped body is a different
+// representation, so its ETag gets a -gzip suffix
+public class ShipJsonConverter extends AbstractGenericHttpMessageConverter<Object> {
+    static final int GZIP_MIN_BYTES = Integer.getInteger("cosmoport.json.gzipMinBytes", 8192);
+    // buffers that grew past this for one huge page are dropped instead of kept per thread
+    private static final int MAX_RETAINED_BYTES = 1 << 20;
+    private static final byte[] GZIP_HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+
+    // names and enum values are quoted and UTF-8 encoded once instead of on every write
+    private static final SerializableString ID = new SerializedString("id");
+    private static final SerializableString NAME = new SerializedString("name");
+    private static final SerializableString PLANET = new SerializedString("planet");
+    private static final SerializableString SHIP_TYPE = new SerializedString("shipType");
+    private static final SerializableString PROD_DATE = new SerializedString("prodDate");
+    private static final SerializableString IS_USED = new SerializedString("isUsed");
+    private static final SerializableString SPEED = new SerializedString("speed");
+    private static final SerializableString CREW_SIZE = new SerializedString("crewSize");
+    private static final SerializableString RATING = new SerializedString("rating");
+    private static final SerializableString[] SHIP_TYPES = new SerializableString[ShipType.values().length];
+
+    static {
+        for (ShipType type : ShipType.values()) {
+            SHIP_TYPES[type.ordinal()] = new SerializedString(type.name());
+        }
+    }
+
+    private static final ThreadLocal<Buffers> BUFFERS = ThreadLocal.withInitial(Buffers::new);
+    // virtual threads live for one request, so a thread local would never be reused there
+    private static final BlockingQueue<Buffers> SHARED_BUFFERS = new ArrayBlockingQueue<>(64);
+
+    private final JsonFactory factory = new JsonFactory();
+    private final int gzipMinBytes;
+
+    private final LongAdder responses = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+    private final LongAdder gzipped = new LongAdder();
+    private final LongAdder gzippedBytes = new LongAdder();
+    private final LongAdder serializeNanos = new LongAdder();
+
+    public ShipJsonConverter() {
+        this(GZIP_MIN_BYTES);
+    }
+
+    ShipJsonConverter(int gzipMinBytes) {
+        super(new MediaType("application", "json", StandardCharsets.UTF_8),
+                new MediaType("application", "*+json", StandardCharsets.UTF_8));
+        this.gzipMinBytes = gzipMinBytes;
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return clazz == Ship.class || clazz == ShipView.class || clazz == ShipPage.class;
+    }
+
+    @Override
+    public boolean canRead(Type type, Class<?> contextClass, MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected boolean canRead(MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    public boolean canWrite(Type type, Class<?> clazz, MediaType mediaType) {
+        return canWrite(mediaType) && (supports(clazz) || isShipList(type));
+    }
+
+    private static boolean isShipList(Type type) {
+        if (!(type instanceof ParameterizedType)) {
+            return false;
+        }
+        ParameterizedType parameterized = (ParameterizedType) type;
+        Type raw = parameterized.getRawType();
+        Type element = parameterized.getActualTypeArguments()[0];
+        return (raw == List.class || raw == Collection.class) && (element == Ship.class || element == ShipView.class);
+    }
+
+    @Override
+    public Object read(Type type, Class<?> contextClass, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("ShipJsonConverter is write-only", inputMessage);
+    }
+
+    @Override
+    protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("ShipJsonConverter is write-only", inputMessage);
+    }
+
+    @Override
+    protected void writeInternal(Object body, Type type, HttpOutputMessage outputMessage) throws IOException {
+        boolean virtual = VirtualThreads.isVirtual(Thread.currentThread());
+        Buffers buffers = virtual ? SHARED_BUFFERS.poll() : BUFFERS.get();
+        if (buffers == null) {
+            buffers = new Buffers();
+        }
+        try {
+            long start = System.nanoTime();
+            write(body, buffers.json);
+            serializeNanos.add(System.nanoTime() - start);
+            responses.increment();
+            bytes.add(buffers.json.size());
+
+            HttpHeaders headers = outputMessage.getHeaders();
+            Buffer out = buffers.json;
+            if (gzipMinBytes >= 0 && out.size() >= gzipMinBytes) {
+                headers.add(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+                ServletRequestAttributes attributes = servletAttributes();
+                if (attributes != null && acceptsGzip(attributes.getRequest().getHeader(HttpHeaders.ACCEPT_ENCODING))) {
+                    buffers.gzip(out);
+                    out = buffers.gzip;
+                    headers.set(HttpHeaders.CONTENT_ENCODING, "gzip");
+                    tagGzipped(attributes.getResponse());
+                    gzipped.increment();
+                    gzippedBytes.add(out.size());
+                }
+            }
+            headers.setContentLength(out.size());
+            out.writeTo(outputMessage.getBody());
+        } finally {
+            buffers.release();
+            if (virtual && !SHARED_BUFFERS.offer(buffers)) {
+                buffers.deflater.end();
+            }
+        }
+    }
+
+    public void write(Object body, OutputStream out) throws IOException {
+        try (JsonGenerator generator = factory.createGenerator(out, JsonEncoding.UTF8)) {
+            if (body instanceof Ship) {
+                writeShip(generator, (Ship) body);
+            } else if (body instanceof ShipView) {
+                writeView(generator, (ShipView) body);
+            } else if (body instanceof ShipPage) {
+                writePage(generator, (ShipPage) body);
+            } else {
+                writeList(generator, (Collection<?>) body);
+            }
+        }
+    }
+
+    private static ServletRequestAttributes servletAttributes() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        return attributes instanceof ServletRequestAttributes ? (ServletRequestAttributes) attributes : null;
+    }
+
+    // an explicit gzip (or x-gzip) coding decides by its q-value, otherwise * does; q=0 refuses
+    public static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        double gzip = -1;
+        double any = -1;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parameters = coding.split(";");
+            String name = parameters[0].trim().toLowerCase(Locale.ROOT);
+            double quality = 1;
+            for (int i = 1; i < parameters.length; i++) {
+                String parameter = parameters[i].trim();
+                if (parameter.length() > 2 && Character.toLowerCase(parameter.charAt(0)) == 'q' && parameter.charAt(1) == '=') {
+                    try {
+                        quality = Double.parseDouble(parameter.substring(2).trim());
+                    } catch (NumberFormatException e) {
+                        quality = 0;
+                    }
+                }
+            }
+            if (name.equals("gzip") || name.equals("x-gzip")) {
+                gzip = Math.max(gzip, quality);
+            } else if (name.equals("*")) {
+                any = Math.max(any, quality);
+            }
+        }
+        return gzip >= 0 ? gzip > 0 : any > 0;
+    }
+
+    public static String gzipTag(String etag) {
+        return etag.endsWith("\"") ? etag.substring(0, etag.length() - 1) + "-gzip\"" : etag + "-gzip";
+    }
+
+    // the controllers set the ETag on the servlet response before the body is written
+    private static void tagGzipped(HttpServletResponse response) {
+        String etag = response == null ? null : response.getHeader(HttpHeaders.ETAG);
+        if (etag != null && !etag.endsWith("-gzip\"")) {
+            response.setHeader(HttpHeaders.ETAG, gzipTag(etag));
+        }
+    }
+
+    private static void writeList(JsonGenerator generator, Collection<?> ships) throws IOException {
+        generator.writeStartArray();
+        for (Object ship : ships) {
+            if (ship instanceof Ship) {
+                writeShip(generator, (Ship) ship);
+            } else {
+                writeView(generator, (ShipView) ship);
+            }
+        }
+        generator.writeEndArray();
+    }
+
+    private static void writePage(JsonGenerator generator, ShipPage page) throws IOException {
+        generator.writeStartObject();
+        generator.writeFieldName("content");
+        writeList(generator, page.getContent());
+        generator.writeNumberField("totalElements", page.getTotalElements());
+        generator.writeNumberField("totalPages", page.getTotalPages());
+        generator.writeNumberField("pageNumber", page.getPageNumber());
+        generator.writeNumberField("pageSize", page.getPageSize());
+        generator.writeEndObject();
+    }
+
+    private static void writeShip(JsonGenerator generator, Ship ship) throws IOException {
+        writeFields(generator, ship.getId(), ship.getName(), ship.getPlanet(), ship.getShipType(), ship.getProdDate(),
+                ship.getUsed(), ship.getSpeed(), ship.getCrewSize(), ship.getRating());
+    }
+
+    private static void writeView(JsonGenerator generator, ShipView view) throws IOException {
+        writeFields(generator, view.getId(), view.getName(), view.getPlanet(), view.getShipType(), view.getProdDate(),
+                view.getUsed(), view.getSpeed(), view.getCrewSize(), view.getRating());
+    }
+
+    private static void writeFields(JsonGenerator generator, Long id, String name, String planet, ShipType shipType, Date prodDate,
+                                    Boolean isUsed, Double speed, Integer crewSize, Double rating) throws IOException {
+        generator.writeStartObject();
+        generator.writeFieldName(ID);
+        if (id == null) generator.writeNull(); else generator.writeNumber(id);
+        generator.writeFieldName(NAME);
+        generator.writeString(name);
+        generator.writeFieldName(PLANET);
+        generator.writeString(planet);
+        generator.writeFieldName(SHIP_TYPE);
+        if (shipType == null) generator.writeNull(); else generator.writeString(SHIP_TYPES[shipType.ordinal()]);
+        generator.writeFieldName(PROD_DATE);
+        if (prodDate == null) generator.writeNull(); else generator.writeNumber(prodDate.getTime());
+        generator.writeFieldName(IS_USED);
+        if (isUsed == null) generator.writeNull(); else generator.writeBoolean(isUsed);
+        generator.writeFieldName(SPEED);
+        if (speed == null) generator.writeNull(); else generator.writeNumber(speed);
+        generator.writeFieldName(CREW_SIZE);
+        if (crewSize == null) generator.writeNull(); else generator.writeNumber(crewSize);
+        generator.writeFieldName(RATING);
+        if (rating == null) generator.writeNull(); else generator.writeNumber(rating);
+        generator.writeEndObject();
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        long count = responses.sum();
+        stats.put("responses", count);
+        stats.put("bytes", bytes.sum());
+        stats.put("bytesAvg", count == 0 ? 0.0 : (double) bytes.sum() / count);
+        stats.put("serializeMillisAvg", count == 0 ? 0.0 : serializeNanos.sum() / 1_000_000.0 / count);
+        stats.put("gzipMinBytes", gzipMinBytes);
+        stats.put("gzipped", gzipped.sum());
+        stats.put("gzippedBytes", gzippedBytes.sum());
+        return stats;
+    }
+
+    // exposes the backing array so the body can be written without another copy
+    static final class Buffer extends ByteArrayOutputStream {
+        Buffer() {
+            super(8192);
+        }
+
+        byte[] array() {
+            return buf;
+        }
+    }
+
+    private static final class Buffers {
+        Buffer json = new Buffer();
+        Buffer gzip = new Buffer();
+        final Deflater deflater = new Deflater(Deflater.BEST_SPEED, true);
+        final CRC32 crc = new CRC32();
+        final byte[] chunk = new byte[8192];
+
+        void gzip(Buffer source) {
+            deflater.reset();
+            crc.reset();
+            crc.update(source.array(), 0, source.size());
+            deflater.setInput(source.array(), 0, source.size());
+            deflater.finish();
+
+            gzip.write(GZIP_HEADER, 0, GZIP_HEADER.length);
+            while (!deflater.finished()) {
+                gzip.write(chunk, 0, deflater.deflate(chunk));
+            }
+            writeIntLE(gzip, (int) crc.getValue());
+            writeIntLE(gzip, source.size());
+        }
+
+        private static void writeIntLE(Buffer out, int value) {
+            out.write(value);
+            out.write(value >>> 8);
+            out.write(value >>> 16);
+            out.write(value >>> 24);
+        }
+
+        void release() {
+            json = json.array().length > MAX_RETAINED_BYTES ? new Buffer() : json;
+            gzip = gzip.array().length > MAX_RETAINED_BYTES ? new Buffer() : gzip;
+            json.reset();
+            gzip.reset();
+        }
+    }
+}
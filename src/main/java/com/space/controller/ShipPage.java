@@ -0,0 +1,42 @@
+package com.space.controller;
+
+import com.space.model.ShipView;
+import org.springframework.data.domain.Page;
+
+import java.util.List;
+
+public class ShipPage {
+    private List<ShipView> content;
+    private long totalElements;
+    private int totalPages;
+    private int pageNumber;
+    private int pageSize;
+
+    public ShipPage(Page<ShipView> page) {
+        this.content = page.getContent();
+        this.totalElements = page.getTotalElements();
+        this.totalPages = page.getTotalPages();
+        this.pageNumber = page.getNumber();
+        this.pageSize = page.getSize();
+    }
+
+    public List<ShipView> getContent() {
+        return content;
+    }
+
+    public long getTotalElements() {
+        return totalElements;
+    }
+
+    public int getTotalPages() {
+        return totalPages;
+    }
+
+    public int getPageNumber() {
+        return pageNumber;
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+}
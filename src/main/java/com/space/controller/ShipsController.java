@@ -1,50 +1,154 @@
 package com.space.controller;
 
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.space.config.ReadWriteRoutingDataSource;
+import com.space.config.ShipJsonConverter;
 import com.space.model.Ship;
 import com.space.model.ShipType;
+import com.space.model.ShipView;
+import com.space.service.ImportReport;
+import com.space.service.RatingRecomputeJob;
+import com.space.service.RecomputeProgress;
+import com.space.service.SearchExecutor;
+import com.space.service.ShipBatchResult;
+import com.space.service.ShipChangeFeed;
+import com.space.service.ShipCursor;
+import com.space.service.ShipEvent;
+import com.space.service.ShipImporter;
 import com.space.service.ShipService;
+import com.space.service.ShipVersions;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 @RestController
 public class ShipsController {
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    private static final String NDJSON_CONTENT_TYPE = "application/x-ndjson";
+
+    private final ObjectWriter exportWriter = new ObjectMapper()
+            .setVisibility(PropertyAccessor.ALL, JsonAutoDetect.Visibility.NONE)
+            .setVisibility(PropertyAccessor.FIELD, JsonAutoDetect.Visibility.ANY)
+            .writerFor(ShipView.class)
+            .withRootValueSeparator("\n");
+
     @Autowired
     ShipService service;
+    @Autowired
+    ShipImporter importer;
+    @Autowired
+    RatingRecomputeJob ratingJob;
+    @Autowired
+    ShipVersions versions;
+    @Autowired
+    SearchExecutor searchExecutor;
+    @Autowired
+    ShipChangeFeed feed;
+    // only AppConfig defines the router
+    @Autowired(required = false)
+    ReadWriteRoutingDataSource routingDataSource;
 
     @RequestMapping("/rest/ships")
-    @ResponseStatus(HttpStatus.OK)
     public @ResponseBody
-    List<Ship> findAllByCriteria(@RequestParam(value = "name", required = false) String name,
-                                 @RequestParam(value = "planet", required = false) String planet,
-                                 @RequestParam(value = "shipType", required = false) ShipType shipType,
-                                 @RequestParam(value = "after", required = false) Long after,
-                                 @RequestParam(value = "before", required = false) Long before,
-                                 @RequestParam(value = "isUsed", required = false) Boolean isUsed,
-                                 @RequestParam(value = "minSpeed", required = false) Double minSpeed,
-                                 @RequestParam(value = "maxSpeed", required = false) Double maxSpeed,
-                                 @RequestParam(value = "minCrewSize", required = false) Integer minCrewSize,
-                                 @RequestParam(value = "maxCrewSize", required = false) Integer maxCrewSize,
-                                 @RequestParam(value = "minRating", required = false) Double minRating,
-                                 @RequestParam(value = "maxRating", required = false) Double maxRating,
-                                 @RequestParam(value = "order", required = false, defaultValue = "ID") ShipOrder order,
-                                 @RequestParam(value = "pageNumber", required = false, defaultValue = "0") Integer pageNumber,
-                                 @RequestParam(value = "pageSize", required = false, defaultValue = "3") Integer pageSize) {
+    ResponseEntity<List<ShipView>> findAllByCriteria(@RequestParam(value = "name", required = false) String name,
+                                                 @RequestParam(value = "planet", required = false) String planet,
+                                                 @RequestParam(value = "shipType", required = false) ShipType shipType,
+                                                 @RequestParam(value = "after", required = false) Long after,
+                                                 @RequestParam(value = "before", required = false) Long before,
+                                                 @RequestParam(value = "isUsed", required = false) Boolean isUsed,
+                                                 @RequestParam(value = "minSpeed", required = false) Double minSpeed,
+                                                 @RequestParam(value = "maxSpeed", required = false) Double maxSpeed,
+                                                 @RequestParam(value = "minCrewSize", required = false) Integer minCrewSize,
+                                                 @RequestParam(value = "maxCrewSize", required = false) Integer maxCrewSize,
+                                                 @RequestParam(value = "minRating", required = false) Double minRating,
+                                                 @RequestParam(value = "maxRating", required = false) Double maxRating,
+                                                 @RequestParam(value = "order", required = false, defaultValue = "ID") ShipOrder order,
+                                                 @RequestParam(value = "pageNumber", required = false, defaultValue = "0") Integer pageNumber,
+                                                 @RequestParam(value = "pageSize", required = false, defaultValue = "3") Integer pageSize,
+                                                 @RequestParam(value = "cursor", required = false) String cursor,
+                                                 ServletWebRequest request) {
 //        if (order == null)
 //            order = ShipOrder.ID;
 
-        return service.findByCriteria(name, planet, shipType, isUsed, after, before, minCrewSize, maxCrewSize, minSpeed, maxSpeed, minRating, maxRating, order, pageNumber, pageSize)
-                .getContent();
+        if (notModified(request, versions.dataTag())) {
+            return null;
+        }
+        if (cursor == null) {
+            return new ResponseEntity<>(service.findViewsByCriteria(name, planet, shipType, isUsed, after, before, minCrewSize, maxCrewSize, minSpeed, maxSpeed, minRating, maxRating, order, pageNumber, pageSize),
+                    HttpStatus.OK);
+        }
+
+        ShipCursor lastSeen;
+        try {
+            lastSeen = cursor.isEmpty() ? null : ShipCursor.decode(cursor, order);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        if (pageSize <= 0) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+
+        List<ShipView> ships = service.findByCursor(name, planet, shipType, isUsed, after, before, minCrewSize, maxCrewSize, minSpeed, maxSpeed, minRating, maxRating, order, lastSeen, pageSize);
+        HttpHeaders headers = new HttpHeaders();
+        if (ships.size() == pageSize) {
+            headers.set(NEXT_CURSOR_HEADER, ShipCursor.after(order, ships.get(ships.size() - 1)).encode());
+        }
+        return new ResponseEntity<>(ships, headers, HttpStatus.OK);
+    }
+
+    // same page as GET /rest/ships (offset pagination only), with the query run on SearchExecutor
+    @RequestMapping(value = "/rest/ships/async", method = RequestMethod.GET)
+    public DeferredResult<ResponseEntity<List<ShipView>>> findAllByCriteriaAsync(@RequestParam(value = "name", required = false) String name,
+                                                                             @RequestParam(value = "planet", required = false) String planet,
+                                                                             @RequestParam(value = "shipType", required = false) ShipType shipType,
+                                                                             @RequestParam(value = "after", required = false) Long after,
+                                                                             @RequestParam(value = "before", required = false) Long before,
+                                                                             @RequestParam(value = "isUsed", required = false) Boolean isUsed,
+                                                                             @RequestParam(value = "minSpeed", required = false) Double minSpeed,
+                                                                             @RequestParam(value = "maxSpeed", required = false) Double maxSpeed,
+                                                                             @RequestParam(value = "minCrewSize", required = false) Integer minCrewSize,
+                                                                             @RequestParam(value = "maxCrewSize", required = false) Integer maxCrewSize,
+                                                                             @RequestParam(value = "minRating", required = false) Double minRating,
+                                                                             @RequestParam(value = "maxRating", required = false) Double maxRating,
+                                                                             @RequestParam(value = "order", required = false, defaultValue = "ID") ShipOrder order,
+                                                                             @RequestParam(value = "pageNumber", required = false, defaultValue = "0") Integer pageNumber,
+                                                                             @RequestParam(value = "pageSize", required = false, defaultValue = "3") Integer pageSize,
+                                                                             ServletWebRequest request) {
+        if (notModified(request, versions.dataTag())) {
+            return null;
+        }
+        return defer(() -> service.findViewsByCriteria(name, planet, shipType, isUsed, after, before, minCrewSize, maxCrewSize, minSpeed, maxSpeed, minRating, maxRating, order, pageNumber, pageSize));
     }
 
     @RequestMapping(value = "rest/ships/count", method = RequestMethod.GET)
-    @ResponseStatus(HttpStatus.OK)
     public @ResponseBody
-    long getCount(@RequestParam(value = "name", required = false) String name,
+    Long getCount(@RequestParam(value = "name", required = false) String name,
                   @RequestParam(value = "planet", required = false) String planet,
                   @RequestParam(value = "shipType", required = false) ShipType shipType,
                   @RequestParam(value = "after", required = false) Long after,
@@ -55,13 +159,130 @@ public class ShipsController {
                   @RequestParam(value = "minCrewSize", required = false) Integer minCrewSize,
                   @RequestParam(value = "maxCrewSize", required = false) Integer maxCrewSize,
                   @RequestParam(value = "minRating", required = false) Double minRating,
-                  @RequestParam(value = "maxRating", required = false) Double maxRating) {
+                  @RequestParam(value = "maxRating", required = false) Double maxRating,
+                  ServletWebRequest request) {
+        if (notModified(request, versions.dataTag())) {
+            return null;
+        }
+        return service.countByCriteria(name, planet, shipType, isUsed, after, before, minCrewSize, maxCrewSize, minSpeed, maxSpeed, minRating, maxRating);
+    }
 
-        return service.findByCriteria(name, planet, shipType, isUsed, after, before, minCrewSize, maxCrewSize, minSpeed, maxSpeed, minRating, maxRating)
-                .getTotalElements();
+    @RequestMapping(value = "/rest/ships/count/async", method = RequestMethod.GET)
+    public DeferredResult<ResponseEntity<Long>> getCountAsync(@RequestParam(value = "name", required = false) String name,
+                                                              @RequestParam(value = "planet", required = false) String planet,
+                                                              @RequestParam(value = "shipType", required = false) ShipType shipType,
+                                                              @RequestParam(value = "after", required = false) Long after,
+                                                              @RequestParam(value = "before", required = false) Long before,
+                                                              @RequestParam(value = "isUsed", required = false) Boolean isUsed,
+                                                              @RequestParam(value = "minSpeed", required = false) Double minSpeed,
+                                                              @RequestParam(value = "maxSpeed", required = false) Double maxSpeed,
+                                                              @RequestParam(value = "minCrewSize", required = false) Integer minCrewSize,
+                                                              @RequestParam(value = "maxCrewSize", required = false) Integer maxCrewSize,
+                                                              @RequestParam(value = "minRating", required = false) Double minRating,
+                                                              @RequestParam(value = "maxRating", required = false) Double maxRating,
+                                                              ServletWebRequest request) {
+        if (notModified(request, versions.dataTag())) {
+            return null;
+        }
+        return defer(() -> service.countByCriteria(name, planet, shipType, isUsed, after, before, minCrewSize, maxCrewSize, minSpeed, maxSpeed, minRating, maxRating));
     }
 
 
+    @RequestMapping(value = "/rest/ships/search", method = RequestMethod.GET)
+    public @ResponseBody
+    ShipPage search(@RequestParam(value = "name", required = false) String name,
+                    @RequestParam(value = "planet", required = false) String planet,
+                    @RequestParam(value = "shipType", required = false) ShipType shipType,
+                    @RequestParam(value = "after", required = false) Long after,
+                    @RequestParam(value = "before", required = false) Long before,
+                    @RequestParam(value = "isUsed", required = false) Boolean isUsed,
+                    @RequestParam(value = "minSpeed", required = false) Double minSpeed,
+                    @RequestParam(value = "maxSpeed", required = false) Double maxSpeed,
+                    @RequestParam(value = "minCrewSize", required = false) Integer minCrewSize,
+                    @RequestParam(value = "maxCrewSize", required = false) Integer maxCrewSize,
+                    @RequestParam(value = "minRating", required = false) Double minRating,
+                    @RequestParam(value = "maxRating", required = false) Double maxRating,
+                    @RequestParam(value = "order", required = false, defaultValue = "ID") ShipOrder order,
+                    @RequestParam(value = "pageNumber", required = false, defaultValue = "0") Integer pageNumber,
+                    @RequestParam(value = "pageSize", required = false, defaultValue = "3") Integer pageSize,
+                    ServletWebRequest request) {
+        if (notModified(request, versions.dataTag())) {
+            return null;
+        }
+        return new ShipPage(service.searchViews(name, planet, shipType, isUsed, after, before, minCrewSize, maxCrewSize, minSpeed, maxSpeed, minRating, maxRating, order, pageNumber, pageSize));
+    }
+
+    @RequestMapping(value = "/rest/ships/export", method = RequestMethod.GET)
+    public void export(@RequestParam(value = "name", required = false) String name,
+                       @RequestParam(value = "planet", required = false) String planet,
+                       @RequestParam(value = "shipType", required = false) ShipType shipType,
+                       @RequestParam(value = "after", required = false) Long after,
+                       @RequestParam(value = "before", required = false) Long before,
+                       @RequestParam(value = "isUsed", required = false) Boolean isUsed,
+                       @RequestParam(value = "minSpeed", required = false) Double minSpeed,
+                       @RequestParam(value = "maxSpeed", required = false) Double maxSpeed,
+                       @RequestParam(value = "minCrewSize", required = false) Integer minCrewSize,
+                       @RequestParam(value = "maxCrewSize", required = false) Integer maxCrewSize,
+                       @RequestParam(value = "minRating", required = false) Double minRating,
+                       @RequestParam(value = "maxRating", required = false) Double maxRating,
+                       @RequestParam(value = "order", required = false, defaultValue = "ID") ShipOrder order,
+                       HttpServletResponse response) throws IOException {
+        response.setContentType(NDJSON_CONTENT_TYPE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+
+        try (SequenceWriter writer = exportWriter.writeValues(response.getOutputStream())) {
+            service.exportViews(name, planet, shipType, isUsed, after, before, minCrewSize, maxCrewSize, minSpeed, maxSpeed, minRating, maxRating, order, view -> {
+                try {
+                    writer.write(view);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    // server-sent events: created, updated and deleted carry the ship (or its id), resync asks the
+    // client to reload; the id is the feed sequence number
+    @RequestMapping(value = "/rest/ships/changes", method = RequestMethod.GET)
+    public SseEmitter changes(@RequestParam(value = "name", required = false) String name,
+                              @RequestParam(value = "planet", required = false) String planet,
+                              @RequestParam(value = "shipType", required = false) ShipType shipType,
+                              @RequestParam(value = "after", required = false) Long after,
+                              @RequestParam(value = "before", required = false) Long before,
+                              @RequestParam(value = "isUsed", required = false) Boolean isUsed,
+                              @RequestParam(value = "minSpeed", required = false) Double minSpeed,
+                              @RequestParam(value = "maxSpeed", required = false) Double maxSpeed,
+                              @RequestParam(value = "minCrewSize", required = false) Integer minCrewSize,
+                              @RequestParam(value = "maxCrewSize", required = false) Integer maxCrewSize,
+                              @RequestParam(value = "minRating", required = false) Double minRating,
+                              @RequestParam(value = "maxRating", required = false) Double maxRating) {
+        SseEmitter emitter = new SseEmitter(ShipChangeFeed.TIMEOUT_MILLIS);
+        ShipChangeFeed.Subscription subscription = feed.subscribe(
+                ShipChangeFeed.filter(name, planet, shipType, isUsed, after, before, minCrewSize, maxCrewSize, minSpeed, maxSpeed, minRating, maxRating),
+                event -> emitter.send(SseEmitter.event()
+                        .id(Long.toString(event.getSequence()))
+                        .name(event.getType().name().toLowerCase(Locale.ROOT))
+                        .data(eventData(event), MediaType.APPLICATION_JSON)));
+        emitter.onCompletion(() -> feed.unsubscribe(subscription));
+        emitter.onTimeout(() -> feed.unsubscribe(subscription));
+        emitter.onError(error -> feed.unsubscribe(subscription));
+        return emitter;
+    }
+
+    private static Object eventData(ShipEvent event) {
+        switch (event.getType()) {
+            case CREATED:
+            case UPDATED:
+                return event.getShip();
+            case DELETED:
+                return Collections.singletonMap("id", event.getShipId());
+            default:
+                return Collections.singletonMap("reason", event.getReason());
+        }
+    }
+
     @PostMapping(value = "/rest/ships")
     @ResponseBody
     public ResponseEntity<Ship> create(@RequestBody Ship ship) {
@@ -72,14 +293,55 @@ public class ShipsController {
         return new ResponseEntity<>(createdShip, HttpStatus.OK);
     }
 
+    @PostMapping(value = "/rest/ships/batch")
+    @ResponseBody
+    public ResponseEntity<List<ShipBatchResult>> createAll(@RequestBody(required = false) List<Ship> ships) {
+        if (ships == null || ships.isEmpty()) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        return new ResponseEntity<>(service.createAll(ships), HttpStatus.OK);
+    }
+
+    @PostMapping(value = "/rest/ships/import")
+    @ResponseBody
+    public ResponseEntity<ImportReport> importShips(@RequestParam(value = "format", required = false, defaultValue = "NDJSON") ShipImporter.Format format,
+                                                    InputStream body) throws IOException {
+        ImportReport report = importer.importShips(body, format, null);
+        // the rows were written on the importer's writer thread
+        if (routingDataSource != null) {
+            routingDataSource.stickToPrimary();
+        }
+        return new ResponseEntity<>(report, HttpStatus.OK);
+    }
+
+    @PostMapping(value = "/rest/ships/ratings/recompute")
+    public ResponseEntity<HttpStatus> recomputeRatings(@RequestParam(value = "parallelism", required = false) Integer parallelism,
+                                                       @RequestParam(value = "fromId", required = false, defaultValue = "0") Long fromId) {
+        int threads = parallelism == null ? RatingRecomputeJob.DEFAULT_PARALLELISM : parallelism;
+        if (threads < 1) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        return new ResponseEntity<>(ratingJob.start(threads, fromId) ? HttpStatus.ACCEPTED : HttpStatus.CONFLICT);
+    }
+
+    @RequestMapping(value = "/rest/ships/ratings/recompute", method = RequestMethod.GET)
+    public @ResponseBody
+    ResponseEntity<RecomputeProgress> getRecomputeProgress() {
+        RecomputeProgress progress = ratingJob.getProgress();
+        return progress == null ? new ResponseEntity<>(HttpStatus.NOT_FOUND) : new ResponseEntity<>(progress, HttpStatus.OK);
+    }
+
     @RequestMapping(value = "/rest/ships/{shipId}", method = RequestMethod.GET)
     public @ResponseBody
-    ResponseEntity<Ship> getOne(@PathVariable String shipId) {
+    ResponseEntity<Ship> getOne(@PathVariable String shipId, ServletWebRequest request) {
         if (!service.idIsValid(shipId)) {
             return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
         }
 
         long id = Long.valueOf(shipId);
+        if (notModified(request, versions.shipTag(id))) {
+            return null;
+        }
 
         Optional<Ship> ship = service.getOne(id);
 
@@ -96,11 +358,9 @@ public class ShipsController {
             return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
         }
 
-        if (!service.idExists(Long.valueOf(shipId))) {
-            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
-        }
-
-        return new ResponseEntity<>(service.update(Long.valueOf(shipId), ship), HttpStatus.OK);
+        return service.update(Long.valueOf(shipId), ship)
+                .map(updatedShip -> new ResponseEntity<>(updatedShip, HttpStatus.OK))
+                .orElseGet(() -> new ResponseEntity<>(HttpStatus.NOT_FOUND));
     }
 
     @RequestMapping(value = "/rest/ships/{shipId}", method = RequestMethod.DELETE)
@@ -116,12 +376,78 @@ public class ShipsController {
         if ( !service.idIsValid(shipId)) {
             return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
         }
-        if (!service.idExists(id)) {
+        if (!service.deleteOne(id)) {
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
-
-        service.deleteOne(id);
         return new ResponseEntity<>(HttpStatus.OK);
     }
 
+    @RequestMapping(value = "/rest/ships", method = RequestMethod.DELETE)
+    public @ResponseBody
+    ResponseEntity<Integer> deleteByCriteria(@RequestParam(value = "name", required = false) String name,
+                                             @RequestParam(value = "planet", required = false) String planet,
+                                             @RequestParam(value = "shipType", required = false) ShipType shipType,
+                                             @RequestParam(value = "after", required = false) Long after,
+                                             @RequestParam(value = "before", required = false) Long before,
+                                             @RequestParam(value = "isUsed", required = false) Boolean isUsed,
+                                             @RequestParam(value = "minSpeed", required = false) Double minSpeed,
+                                             @RequestParam(value = "maxSpeed", required = false) Double maxSpeed,
+                                             @RequestParam(value = "minCrewSize", required = false) Integer minCrewSize,
+                                             @RequestParam(value = "maxCrewSize", required = false) Integer maxCrewSize,
+                                             @RequestParam(value = "minRating", required = false) Double minRating,
+                                             @RequestParam(value = "maxRating", required = false) Double maxRating) {
+        // refuse to wipe the whole table by accident
+        if (Stream.of(name, planet, shipType, after, before, isUsed, minSpeed, maxSpeed, minCrewSize, maxCrewSize, minRating, maxRating)
+                .allMatch(Objects::isNull)) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+
+        return new ResponseEntity<>(service.deleteByCriteria(name, planet, shipType, isUsed, after, before, minCrewSize, maxCrewSize, minSpeed, maxSpeed, minRating, maxRating), HttpStatus.OK);
+    }
+
+    // sets the ETag and answers 304 when If-None-Match already has it; clients are asked to
+    // revalidate every time, which then costs no query and no serialization. A client holding the
+    // gzipped body revalidates with its -gzip tag; a null tag (data too fresh for the replicas)
+    // sends none
+    private static boolean notModified(ServletWebRequest request, String etag) {
+        request.getResponse().setHeader(HttpHeaders.CACHE_CONTROL, "no-cache");
+        if (etag == null) {
+            return false;
+        }
+        String gzipTag = ShipJsonConverter.gzipTag(etag);
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null && ifNoneMatch.contains(gzipTag)
+                && ShipJsonConverter.acceptsGzip(request.getHeader(HttpHeaders.ACCEPT_ENCODING))) {
+            return request.checkNotModified(gzipTag);
+        }
+        return request.checkNotModified(etag);
+    }
+
+    // a full queue or a request that waited past the timeout both answer 503, so clients back off
+    // instead of holding a connection; a task still queued at the timeout never reaches the database
+    private <T> DeferredResult<ResponseEntity<T>> defer(Supplier<T> work) {
+        DeferredResult<ResponseEntity<T>> result = new DeferredResult<>(searchExecutor.getTimeoutMillis());
+        // the request may be recycled once it timed out, so the worker only gets the client's stickiness
+        CompletableFuture<T> future = searchExecutor.submit(routingDataSource == null ? work : routingDataSource.withStickiness(work));
+        result.onTimeout(() -> {
+            searchExecutor.timedOut(future);
+            result.setResult(serviceUnavailable());
+        });
+        future.whenComplete((value, error) -> {
+            if (error == null) {
+                result.setResult(new ResponseEntity<>(value, HttpStatus.OK));
+            } else if (error instanceof RejectedExecutionException) {
+                result.setResult(serviceUnavailable());
+            } else if (!(error instanceof CancellationException)) {
+                result.setErrorResult(error);
+            }
+        });
+        return result;
+    }
+
+    private static <T> ResponseEntity<T> serviceUnavailable() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, "1");
+        return new ResponseEntity<>(headers, HttpStatus.SERVICE_UNAVAILABLE);
+    }
 }
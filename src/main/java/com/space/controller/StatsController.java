@@ -0,0 +1,112 @@
+package com.space.controller;
+
+import com.space.config.PoolMetrics;
+import com.space.config.ReadWriteRoutingDataSource;
+import com.space.config.ShipJsonConverter;
+import com.space.service.SearchExecutor;
+import com.space.service.ShipCache;
+import com.space.service.ShipChangeFeed;
+import com.space.service.ShipJournal;
+import com.space.service.ShipResultCache;
+import com.space.service.ShipService;
+import com.space.service.ShipValidator;
+import com.space.service.VirtualThreads;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Collections;
+import java.util.Map;
+
+@RestController
+public class StatsController {
+    @Autowired
+    PoolMetrics poolMetrics;
+    @Autowired
+    ShipCache shipCache;
+    @Autowired
+    ShipValidator shipValidator;
+    @Autowired
+    ShipService shipService;
+    @Autowired
+    ShipResultCache resultCache;
+    @Autowired
+    ShipJsonConverter jsonConverter;
+    @Autowired
+    SearchExecutor searchExecutor;
+    @Autowired
+    ShipChangeFeed changeFeed;
+    @Autowired
+    ShipJournal journal;
+    // only AppConfig defines the router
+    @Autowired(required = false)
+    ReadWriteRoutingDataSource routingDataSource;
+
+    @RequestMapping(value = "/rest/stats/pool", method = RequestMethod.GET)
+    public @ResponseBody
+    Map<String, Object> getPoolStats() {
+        return poolMetrics.snapshot();
+    }
+
+    @RequestMapping(value = "/rest/stats/cache", method = RequestMethod.GET)
+    public @ResponseBody
+    Map<String, Object> getCacheStats() {
+        return shipCache.snapshot();
+    }
+
+    @RequestMapping(value = "/rest/stats/validation", method = RequestMethod.GET)
+    public @ResponseBody
+    Map<String, Object> getValidationStats() {
+        return shipValidator.snapshot();
+    }
+
+    @RequestMapping(value = "/rest/stats/queries", method = RequestMethod.GET)
+    public @ResponseBody
+    Map<String, Object> getQueryPlanStats() {
+        return shipService.queryPlanStats();
+    }
+
+    @RequestMapping(value = "/rest/stats/results", method = RequestMethod.GET)
+    public @ResponseBody
+    Map<String, Object> getResultCacheStats() {
+        return resultCache.snapshot();
+    }
+
+    @RequestMapping(value = "/rest/stats/json", method = RequestMethod.GET)
+    public @ResponseBody
+    Map<String, Object> getJsonStats() {
+        return jsonConverter.snapshot();
+    }
+
+    @RequestMapping(value = "/rest/stats/search", method = RequestMethod.GET)
+    public @ResponseBody
+    Map<String, Object> getSearchExecutorStats() {
+        return searchExecutor.snapshot();
+    }
+
+    @RequestMapping(value = "/rest/stats/threads", method = RequestMethod.GET)
+    public @ResponseBody
+    Map<String, Object> getThreadStats() {
+        return VirtualThreads.snapshot();
+    }
+
+    @RequestMapping(value = "/rest/stats/feed", method = RequestMethod.GET)
+    public @ResponseBody
+    Map<String, Object> getFeedStats() {
+        return changeFeed.snapshot();
+    }
+
+    @RequestMapping(value = "/rest/stats/journal", method = RequestMethod.GET)
+    public @ResponseBody
+    Map<String, Object> getJournalStats() {
+        return journal.snapshot();
+    }
+
+    @RequestMapping(value = "/rest/stats/routing", method = RequestMethod.GET)
+    public @ResponseBody
+    Map<String, Object> getRoutingStats() {
+        return routingDataSource == null ? Collections.singletonMap("enabled", false) : routingDataSource.snapshot();
+    }
+}
@@ -0,0 +1,58 @@
+package com.space.model;
+
+import java.util.Calendar;
+import java.util.Date;
+import java.util.GregorianCalendar;
+
+// the rating formula, speedWeight * speed * k / (year - prodYear + 1) with k the used or new
+// coefficient. Every term can be moved with -Dcosmoport.rating.year, .speedWeight,
+// .usedCoefficient and .newCoefficient, after which stored ratings are brought up to date by
+// RatingRecomputeJob
+public final class ShipRating {
+    public static final int REFERENCE_YEAR = Integer.getInteger("cosmoport.rating.year", 3019);
+    public static final double SPEED_WEIGHT = Double.parseDouble(System.getProperty("cosmoport.rating.speedWeight", "80"));
+    public static final double USED_COEFFICIENT = Double.parseDouble(System.getProperty("cosmoport.rating.usedCoefficient", "0.5"));
+    public static final double NEW_COEFFICIENT = Double.parseDouble(System.getProperty("cosmoport.rating.newCoefficient", "1"));
+    // the latest production year the API accepts, see ShipValidator
+    static final int LATEST_PROD_YEAR = 3019;
+
+    private ShipRating() {
+    }
+
+    // fails for a configuration the formula cannot use; called once at startup
+    public static void checkConfiguration() {
+        check(REFERENCE_YEAR, SPEED_WEIGHT, USED_COEFFICIENT, NEW_COEFFICIENT);
+    }
+
+    static void check(int referenceYear, double speedWeight, double usedCoefficient, double newCoefficient) {
+        // a ship built after the reference year would divide by zero or get a negative rating
+        if (referenceYear < LATEST_PROD_YEAR) {
+            throw new IllegalStateException("cosmoport.rating.year must not be before " + LATEST_PROD_YEAR
+                    + ", the latest accepted production year, but is " + referenceYear);
+        }
+        if (!(speedWeight > 0) || Double.isInfinite(speedWeight)) {
+            throw new IllegalStateException("cosmoport.rating.speedWeight must be positive, but is " + speedWeight);
+        }
+        if (!(usedCoefficient > 0) || Double.isInfinite(usedCoefficient)
+                || !(newCoefficient > 0) || Double.isInfinite(newCoefficient)) {
+            throw new IllegalStateException("cosmoport.rating.usedCoefficient and newCoefficient must be positive, but are "
+                    + usedCoefficient + " and " + newCoefficient);
+        }
+    }
+
+    public static double compute(double speed, boolean isUsed, Date prodDate) {
+        return compute(speed, isUsed, yearOf(prodDate));
+    }
+
+    public static double compute(double speed, boolean isUsed, int prodYear) {
+        double recencyCoefficient = isUsed ? USED_COEFFICIENT : NEW_COEFFICIENT;
+        double rating = SPEED_WEIGHT * speed * recencyCoefficient / (REFERENCE_YEAR - prodYear + 1);
+        return Math.round(rating * 100) / 100.0;
+    }
+
+    public static int yearOf(Date date) {
+        Calendar calendar = GregorianCalendar.getInstance();
+        calendar.setTime(date);
+        return calendar.get(Calendar.YEAR);
+    }
+}
@@ -0,0 +1,63 @@
+package com.space.model;
+
+import java.util.Date;
+
+public class ShipView {
+    Long id;
+    String name;
+    String planet;
+    ShipType shipType;
+    Date prodDate;
+    Boolean isUsed;
+    Double speed;
+    Integer crewSize;
+    Double rating;
+
+    public ShipView(Long id, String name, String planet, ShipType shipType, Date prodDate, Boolean isUsed, Double speed, Integer crewSize, Double rating) {
+        this.id = id;
+        this.name = name;
+        this.planet = planet;
+        this.shipType = shipType;
+        this.prodDate = prodDate;
+        this.isUsed = isUsed;
+        this.speed = speed;
+        this.crewSize = crewSize;
+        this.rating = rating;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getPlanet() {
+        return planet;
+    }
+
+    public ShipType getShipType() {
+        return shipType;
+    }
+
+    public Date getProdDate() {
+        return prodDate;
+    }
+
+    public Boolean getUsed() {
+        return isUsed;
+    }
+
+    public Double getSpeed() {
+        return speed;
+    }
+
+    public Integer getCrewSize() {
+        return crewSize;
+    }
+
+    public Double getRating() {
+        return rating;
+    }
+}
@@ -0,0 +1,130 @@
+package com.space.repository;
+
+import com.space.model.ShipType;
+
+import javax.persistence.Query;
+import java.util.Date;
+import java.util.Set;
+
+// the search criteria of /rest/ships with the values already normalized (year-start dates, text
+// index hits). shape() reduces it to the criteria that are present, which is all a compiled
+// query depends on; the values are bound per execution
+public class ShipFilter {
+    static final String[] CONDITIONS = {
+            "s.name like :name escape '!'",
+            "s.id in :nameIds",
+            "1 = 0",
+            "s.planet like :planet escape '!'",
+            "s.id in :planetIds",
+            "1 = 0",
+            "s.shipType = :shipType",
+            "s.isUsed = :isUsed",
+            "s.prodDate >= :after",
+            "s.prodDate <= :before",
+            "s.crewSize >= :minCrewSize",
+            "s.crewSize <= :maxCrewSize",
+            "s.speed >= :minSpeed",
+            "s.speed <= :maxSpeed",
+            "s.rating >= :minRating",
+            "s.rating <= :maxRating",
+    };
+
+    public static final char ESCAPE = '!';
+
+    private final String name;
+    private final Set<Long> nameIds;
+    private final String planet;
+    private final Set<Long> planetIds;
+    private final ShipType shipType;
+    private final Boolean isUsed;
+    private final Date after;
+    private final Date before;
+    private final Integer minCrewSize;
+    private final Integer maxCrewSize;
+    private final Double minSpeed;
+    private final Double maxSpeed;
+    private final Double minRating;
+    private final Double maxRating;
+    private final int shape;
+
+    // nameIds/planetIds, when not null, replace the LIKE on name/planet
+    public ShipFilter(String name, Set<Long> nameIds, String planet, Set<Long> planetIds, ShipType shipType, Boolean isUsed,
+                      Date after, Date before,
+                      Integer minCrewSize, Integer maxCrewSize,
+                      Double minSpeed, Double maxSpeed,
+                      Double minRating, Double maxRating) {
+        this.name = name;
+        this.nameIds = nameIds;
+        this.planet = planet;
+        this.planetIds = planetIds;
+        this.shipType = shipType;
+        this.isUsed = isUsed;
+        this.after = after;
+        this.before = before;
+        this.minCrewSize = minCrewSize;
+        this.maxCrewSize = maxCrewSize;
+        this.minSpeed = minSpeed;
+        this.maxSpeed = maxSpeed;
+        this.minRating = minRating;
+        this.maxRating = maxRating;
+        this.shape = textShape(name, nameIds) | textShape(planet, planetIds) << 3
+                | bit(shipType, 6) | bit(isUsed, 7) | bit(after, 8) | bit(before, 9)
+                | bit(minCrewSize, 10) | bit(maxCrewSize, 11) | bit(minSpeed, 12) | bit(maxSpeed, 13)
+                | bit(minRating, 14) | bit(maxRating, 15);
+    }
+
+    public int shape() {
+        return shape;
+    }
+
+    void bind(Query query) {
+        set(query, 0, "name", containsPattern(name));
+        set(query, 1, "nameIds", nameIds);
+        set(query, 3, "planet", containsPattern(planet));
+        set(query, 4, "planetIds", planetIds);
+        set(query, 6, "shipType", shipType);
+        set(query, 7, "isUsed", isUsed);
+        set(query, 8, "after", after);
+        set(query, 9, "before", before);
+        set(query, 10, "minCrewSize", minCrewSize);
+        set(query, 11, "maxCrewSize", maxCrewSize);
+        set(query, 12, "minSpeed", minSpeed);
+        set(query, 13, "maxSpeed", maxSpeed);
+        set(query, 14, "minRating", minRating);
+        set(query, 15, "maxRating", maxRating);
+    }
+
+    // LIKE pattern matching text anywhere, with its own % and _ taken literally like the in-memory
+    // replica, text index and change feed do; '!' escapes, a backslash would need escaping in MySQL itself
+    public static String containsPattern(String text) {
+        if (text == null) {
+            return null;
+        }
+        StringBuilder pattern = new StringBuilder(text.length() + 8).append('%');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '%' || c == '_' || c == ESCAPE) {
+                pattern.append(ESCAPE);
+            }
+            pattern.append(c);
+        }
+        return pattern.append('%').toString();
+    }
+
+    private void set(Query query, int condition, String parameter, Object value) {
+        if ((shape & 1 << condition) != 0) {
+            query.setParameter(parameter, value);
+        }
+    }
+
+    private static int textShape(String text, Set<Long> ids) {
+        if (ids != null) {
+            return ids.isEmpty() ? 4 : 2;
+        }
+        return text != null ? 1 : 0;
+    }
+
+    private static int bit(Object value, int condition) {
+        return value == null ? 0 : 1 << condition;
+    }
+}
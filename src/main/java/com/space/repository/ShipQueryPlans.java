@@ -0,0 +1,91 @@
+package com.space.repository;
+
+import org.springframework.data.domain.Sort;
+
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+// JPQL per filter shape and sort, built once. Reusing the exact same string lets Hibernate's
+// query plan cache and the driver's prepared statement cache hit as well, so a known shape
+// skips criteria building, HQL translation and statement preparation
+class ShipQueryPlans {
+    static final int MAX_PLANS = 4096;
+
+    private static final String VIEW_SELECT = "select new com.space.model.ShipView(s.id, s.name, s.planet, s.shipType, "
+            + "s.prodDate, s.isUsed, s.speed, s.crewSize, s.rating) from Ship s";
+    private static final String COUNT_SELECT = "select count(s) from Ship s";
+
+    private final ConcurrentMap<String, String> plans = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder compileNanos = new LongAdder();
+    private final LongAccumulator maxCompileNanos = new LongAccumulator(Long::max, 0);
+
+    <T> TypedQuery<T> viewQuery(EntityManager entityManager, ShipFilter filter, Sort sort, Class<T> type) {
+        return create(entityManager, "v" + filter.shape() + sort, VIEW_SELECT, filter, sort, type);
+    }
+
+    TypedQuery<Long> countQuery(EntityManager entityManager, ShipFilter filter) {
+        return create(entityManager, "c" + filter.shape(), COUNT_SELECT, filter, Sort.unsorted(), Long.class);
+    }
+
+    private <T> TypedQuery<T> create(EntityManager entityManager, String key, String select, ShipFilter filter, Sort sort, Class<T> type) {
+        String jpql = plans.get(key);
+        if (jpql != null) {
+            hits.increment();
+            return entityManager.createQuery(jpql, type);
+        }
+
+        // the first createQuery of a new string is where Hibernate translates it, so it is timed too
+        long start = System.nanoTime();
+        jpql = compile(select, filter.shape(), sort);
+        TypedQuery<T> query = entityManager.createQuery(jpql, type);
+        long elapsed = System.nanoTime() - start;
+
+        misses.increment();
+        compileNanos.add(elapsed);
+        maxCompileNanos.accumulate(elapsed);
+        if (plans.size() < MAX_PLANS) {
+            plans.putIfAbsent(key, jpql);
+        }
+        return query;
+    }
+
+    private static String compile(String select, int shape, Sort sort) {
+        StringBuilder jpql = new StringBuilder(select);
+        String separator = " where ";
+        for (int condition = 0; condition < ShipFilter.CONDITIONS.length; condition++) {
+            if ((shape & 1 << condition) != 0) {
+                jpql.append(separator).append(ShipFilter.CONDITIONS[condition]);
+                separator = " and ";
+            }
+        }
+        separator = " order by ";
+        for (Sort.Order order : sort) {
+            jpql.append(separator).append("s.").append(order.getProperty()).append(order.isAscending() ? " asc" : " desc");
+            separator = ", ";
+        }
+        return jpql.toString();
+    }
+
+    Map<String, Object> snapshot() {
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("plans", plans.size());
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("hitRate", hitCount + missCount == 0 ? 0.0 : (double) hitCount / (hitCount + missCount));
+        stats.put("compileMillisTotal", TimeUnit.NANOSECONDS.toMillis(compileNanos.sum()));
+        stats.put("compileMillisAvg", missCount == 0 ? 0.0 : compileNanos.sum() / 1_000_000.0 / missCount);
+        stats.put("compileMillisMax", TimeUnit.NANOSECONDS.toMillis(maxCompileNanos.get()));
+        return stats;
+    }
+}
@@ -1,12 +1,18 @@
 package com.space.repository;
 
 import com.space.model.Ship;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
+import java.util.List;
+
 @Repository
-public interface ShipRepository extends JpaRepository <Ship, Long>, JpaSpecificationExecutor<Ship> {
+public interface ShipRepository extends JpaRepository <Ship, Long>, JpaSpecificationExecutor<Ship>, ShipRepositoryCustom {
 //    @Override
 //    @Transactional (timeout =10)
 //    List<Ship> findAll();
@@ -19,6 +25,17 @@ public interface ShipRepository extends JpaRepository <Ship, Long>, JpaSpecifica
 
 //---------------------------------
 
+    @Override
+    @QueryHints(@QueryHint(name = "org.hibernate.cacheable", value = "true"))
+    long count(Specification<Ship> specification);
+
+    @Query("select s.id, s.name, s.planet from Ship s")
+    List<Object[]> findAllTexts();
+
+    @Query("select min(s.id) from Ship s")
+    Long findMinId();
 
+    @Query("select max(s.id) from Ship s")
+    Long findMaxId();
 
 }
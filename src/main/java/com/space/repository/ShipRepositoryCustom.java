@@ -0,0 +1,35 @@
+package com.space.repository;
+
+import com.space.model.Ship;
+import com.space.model.ShipView;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+public interface ShipRepositoryCustom {
+
+    List<ShipView> findViews(Specification<Ship> specification, Sort sort, long offset, int limit);
+
+    List<ShipView> findViews(ShipFilter filter, Sort sort, long offset, int limit);
+
+    long countMatching(ShipFilter filter);
+
+    Map<String, Object> queryPlanStats();
+
+    Stream<ShipView> streamViews(Specification<Ship> specification, Sort sort);
+
+    List<Long> insertAll(List<Ship> ships);
+
+    int updateChanged(Long id, Ship changes);
+
+    int removeById(Long id);
+
+    List<Long> findIds(Specification<Ship> specification);
+
+    int deleteMatching(Specification<Ship> specification);
+
+    int recomputeRatings(long fromId, long toId);
+}
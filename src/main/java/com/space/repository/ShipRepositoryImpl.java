@@ -0,0 +1,316 @@
+package com.space.repository;
+
+import com.space.model.Ship;
+import com.space.model.ShipRating;
+import com.space.model.ShipView;
+import org.hibernate.Session;
+import org.hibernate.jpa.QueryHints;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+
+import javax.persistence.EntityManager;
+import javax.persistence.FlushModeType;
+import javax.persistence.PersistenceContext;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaDelete;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+public class ShipRepositoryImpl implements ShipRepositoryCustom {
+    private static final int BATCH_SIZE = 500;
+    private static final int STREAM_FETCH_SIZE = 1000;
+    private static final String INSERT_SQL =
+            "insert into ship (name, planet, shipType, prodDate, isUsed, speed, crewSize, rating) values (?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String DELETE_SQL = "delete from ship where id = ?";
+    private static final String RATING_INPUTS_SQL =
+            "select id, speed, isUsed, prodDate, rating from ship where id >= ? and id < ?";
+    // only while the inputs are still the ones the rating was computed from; a row updated in between
+    // already got its rating from that update
+    private static final String UPDATE_RATING_SQL =
+            "update ship set rating = ? where id = ? and speed = ? and isUsed = ? and prodDate = ?";
+
+    @PersistenceContext
+    EntityManager entityManager;
+
+    private final ShipQueryPlans queryPlans = new ShipQueryPlans();
+
+    @Override
+    public List<ShipView> findViews(Specification<Ship> specification, Sort sort, long offset, int limit) {
+        return entityManager.createQuery(viewQuery(specification, sort))
+                .setFlushMode(FlushModeType.COMMIT)
+                .setHint(QueryHints.HINT_READONLY, true)
+                .setHint(QueryHints.HINT_CACHEABLE, true)
+                .setFirstResult(Math.toIntExact(offset))
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    @Override
+    public List<ShipView> findViews(ShipFilter filter, Sort sort, long offset, int limit) {
+        TypedQuery<ShipView> query = queryPlans.viewQuery(entityManager, filter, sort, ShipView.class);
+        filter.bind(query);
+        return query
+                .setFlushMode(FlushModeType.COMMIT)
+                .setHint(QueryHints.HINT_READONLY, true)
+                .setHint(QueryHints.HINT_CACHEABLE, true)
+                .setFirstResult(Math.toIntExact(offset))
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    @Override
+    public long countMatching(ShipFilter filter) {
+        TypedQuery<Long> query = queryPlans.countQuery(entityManager, filter);
+        filter.bind(query);
+        return query
+                .setFlushMode(FlushModeType.COMMIT)
+                .setHint(QueryHints.HINT_CACHEABLE, true)
+                .getSingleResult();
+    }
+
+    @Override
+    public Map<String, Object> queryPlanStats() {
+        return queryPlans.snapshot();
+    }
+
+    // the caller must close the stream inside its transaction; rows are fetched through a
+    // server-side cursor (useCursorFetch) so only one fetch of rows is held at a time
+    @Override
+    public Stream<ShipView> streamViews(Specification<Ship> specification, Sort sort) {
+        return entityManager.createQuery(viewQuery(specification, sort))
+                .setFlushMode(FlushModeType.COMMIT)
+                .setHint(QueryHints.HINT_READONLY, true)
+                .setHint(QueryHints.HINT_FETCH_SIZE, STREAM_FETCH_SIZE)
+                .getResultStream();
+    }
+
+    private CriteriaQuery<ShipView> viewQuery(Specification<Ship> specification, Sort sort) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<ShipView> query = criteriaBuilder.createQuery(ShipView.class);
+        Root<Ship> root = query.from(Ship.class);
+
+        query.select(criteriaBuilder.construct(ShipView.class,
+                root.get("id"), root.get("name"), root.get("planet"), root.get("shipType"), root.get("prodDate"),
+                root.get("isUsed"), root.get("speed"), root.get("crewSize"), root.get("rating")));
+
+        Predicate predicate = specification.toPredicate(root, query, criteriaBuilder);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        query.orderBy(QueryUtils.toOrders(sort, root, criteriaBuilder));
+        return query;
+    }
+
+    // Hibernate cannot batch IDENTITY inserts, but the driver can: AUTO_INCREMENT keys of a
+    // rewritten multi-row insert are handed back in order through getGeneratedKeys
+    @Override
+    public List<Long> insertAll(List<Ship> ships) {
+        return entityManager.unwrap(Session.class).doReturningWork(connection -> {
+            List<Long> ids = new ArrayList<>(ships.size());
+            try (PreparedStatement statement = connection.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+                int pending = 0;
+                for (Ship ship : ships) {
+                    statement.setString(1, ship.getName());
+                    statement.setString(2, ship.getPlanet());
+                    statement.setString(3, ship.getShipType().name());
+                    statement.setTimestamp(4, new Timestamp(ship.getProdDate().getTime()));
+                    statement.setBoolean(5, ship.getUsed());
+                    statement.setDouble(6, ship.getSpeed());
+                    statement.setInt(7, ship.getCrewSize());
+                    statement.setDouble(8, ship.getRating());
+                    statement.addBatch();
+
+                    if (++pending == BATCH_SIZE) {
+                        executeBatch(statement, ids);
+                        pending = 0;
+                    }
+                }
+                if (pending > 0) {
+                    executeBatch(statement, ids);
+                }
+            }
+            return ids;
+        });
+    }
+
+    private void executeBatch(PreparedStatement statement, List<Long> ids) throws SQLException {
+        statement.executeBatch();
+        try (ResultSet keys = statement.getGeneratedKeys()) {
+            while (keys.next()) {
+                ids.add(keys.getLong(1));
+            }
+        }
+    }
+
+    // null fields of changes are left untouched. Unless changes carries a rating, the rating is
+    // recomputed in the same statement from the new speed/isUsed/prodDate where given and the
+    // stored ones otherwise, with the formula of ShipRating
+    @Override
+    public int updateChanged(Long id, Ship changes) {
+        List<String> assignments = new ArrayList<>();
+        List<Object> args = new ArrayList<>();
+        Timestamp prodDate = changes.getProdDate() == null ? null : new Timestamp(changes.getProdDate().getTime());
+        String shipType = changes.getShipType() == null ? null : changes.getShipType().name();
+
+        assign(assignments, args, "name", changes.getName());
+        assign(assignments, args, "planet", changes.getPlanet());
+        assign(assignments, args, "shipType", shipType);
+        assign(assignments, args, "prodDate", prodDate);
+        assign(assignments, args, "isUsed", changes.getUsed());
+        assign(assignments, args, "speed", changes.getSpeed());
+        assign(assignments, args, "crewSize", changes.getCrewSize());
+
+        if (changes.getRating() != null) {
+            assign(assignments, args, "rating", changes.getRating());
+        } else if (changes.getSpeed() != null || changes.getUsed() != null || prodDate != null) {
+            // the bound double weight keeps a bound speed from being typed as an integer
+            StringBuilder rating = new StringBuilder("rating = FLOOR(? * ");
+            args.add(ShipRating.SPEED_WEIGHT);
+            rating.append(operand(args, changes.getSpeed(), "speed"));
+            rating.append(" * ");
+            if (changes.getUsed() != null) {
+                rating.append("?");
+                args.add(changes.getUsed() ? ShipRating.USED_COEFFICIENT : ShipRating.NEW_COEFFICIENT);
+            } else {
+                rating.append("CASE WHEN isUsed THEN ? ELSE ? END");
+                args.add(ShipRating.USED_COEFFICIENT);
+                args.add(ShipRating.NEW_COEFFICIENT);
+            }
+            rating.append(" / ");
+            rating.append(operand(args, prodDate == null ? null : ShipRating.REFERENCE_YEAR - ShipRating.yearOf(prodDate) + 1,
+                    "(" + ShipRating.REFERENCE_YEAR + " - YEAR(prodDate) + 1)"));
+            rating.append(" * 100 + 0.5) / 100");
+            assignments.add(rating.toString());
+        }
+        if (assignments.isEmpty()) {
+            return 0;
+        }
+
+        String sql = "update ship set " + String.join(", ", assignments) + " where id = ?";
+        args.add(id);
+        return entityManager.unwrap(Session.class).doReturningWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                for (int i = 0; i < args.size(); i++) {
+                    statement.setObject(i + 1, args.get(i));
+                }
+                return statement.executeUpdate();
+            }
+        });
+    }
+
+    // unlike deleteById this neither loads the entity first nor throws for a missing row
+    @Override
+    public int removeById(Long id) {
+        return entityManager.unwrap(Session.class).doReturningWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(DELETE_SQL)) {
+                statement.setLong(1, id);
+                return statement.executeUpdate();
+            }
+        });
+    }
+
+    @Override
+    public List<Long> findIds(Specification<Ship> specification) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = criteriaBuilder.createQuery(Long.class);
+        Root<Ship> root = query.from(Ship.class);
+        query.select(root.get("id"));
+
+        Predicate predicate = specification.toPredicate(root, query, criteriaBuilder);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        return entityManager.createQuery(query)
+                .setFlushMode(FlushModeType.COMMIT)
+                .getResultList();
+    }
+
+    // a bulk delete invalidates the Ship cache region and the cached queries by itself
+    @Override
+    public int deleteMatching(Specification<Ship> specification) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaDelete<Ship> delete = criteriaBuilder.createCriteriaDelete(Ship.class);
+        Root<Ship> root = delete.from(Ship.class);
+
+        Predicate predicate = specification.toPredicate(root, null, criteriaBuilder);
+        if (predicate != null) {
+            delete.where(predicate);
+        }
+        return entityManager.createQuery(delete).executeUpdate();
+    }
+
+    // reads the rating inputs of ids in [fromId, toId) and writes back only the ratings that moved,
+    // as one JDBC batch; returns the rows actually changed
+    @Override
+    public int recomputeRatings(long fromId, long toId) {
+        return entityManager.unwrap(Session.class).doReturningWork(connection -> {
+            int batched = 0;
+            int updated = 0;
+            try (PreparedStatement select = connection.prepareStatement(RATING_INPUTS_SQL);
+                 PreparedStatement update = connection.prepareStatement(UPDATE_RATING_SQL)) {
+                select.setLong(1, fromId);
+                select.setLong(2, toId);
+                try (ResultSet rows = select.executeQuery()) {
+                    while (rows.next()) {
+                        double speed = rows.getDouble(2);
+                        boolean speedIsNull = rows.wasNull();
+                        boolean isUsed = rows.getBoolean(3);
+                        boolean isUsedIsNull = rows.wasNull();
+                        Date prodDate = rows.getDate(4);
+                        if (speedIsNull || isUsedIsNull || prodDate == null) {
+                            continue;
+                        }
+
+                        double rating = ShipRating.compute(speed, isUsed, prodDate);
+                        double stored = rows.getDouble(5);
+                        if (rows.wasNull() || stored != rating) {
+                            update.setDouble(1, rating);
+                            update.setLong(2, rows.getLong(1));
+                            update.setDouble(3, speed);
+                            update.setBoolean(4, isUsed);
+                            update.setDate(5, prodDate);
+                            update.addBatch();
+                            batched++;
+                        }
+                    }
+                }
+                if (batched > 0) {
+                    for (int count : update.executeBatch()) {
+                        if (count > 0 || count == Statement.SUCCESS_NO_INFO) {
+                            updated++;
+                        }
+                    }
+                }
+            }
+            return updated;
+        });
+    }
+
+    private static void assign(List<String> assignments, List<Object> args, String column, Object value) {
+        if (value != null) {
+            assignments.add(column + " = ?");
+            args.add(value);
+        }
+    }
+
+    private static String operand(List<Object> args, Object value, String storedExpression) {
+        if (value == null) {
+            return storedExpression;
+        }
+        args.add(value);
+        return "?";
+    }
+}
@@ -0,0 +1,86 @@
+package com.space.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ImportReport {
+    private static final int MAX_REPORTED_REJECTS = 100;
+
+    private long rows;
+    private long imported;
+    private long rejected;
+    private long elapsedMillis;
+    private double rowsPerSecond;
+    private List<Reject> rejects = new ArrayList<>();
+
+    private transient final long startNanos = System.nanoTime();
+
+    void row() {
+        rows++;
+    }
+
+    void imported() {
+        imported++;
+        tick();
+    }
+
+    void reject(long line, String reason) {
+        rejected++;
+        if (rejects.size() < MAX_REPORTED_REJECTS) {
+            rejects.add(new Reject(line, reason));
+        }
+        tick();
+    }
+
+    private void tick() {
+        elapsedMillis = (System.nanoTime() - startNanos) / 1_000_000;
+        rowsPerSecond = elapsedMillis == 0 ? 0 : (imported + rejected) * 1000.0 / elapsedMillis;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    public long getImported() {
+        return imported;
+    }
+
+    public long getRejected() {
+        return rejected;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public double getRowsPerSecond() {
+        return rowsPerSecond;
+    }
+
+    public List<Reject> getRejects() {
+        return rejects;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d rows, %d imported, %d rejected, %.0f rows/s", rows, imported, rejected, rowsPerSecond);
+    }
+
+    public static class Reject {
+        private long line;
+        private String reason;
+
+        Reject(long line, String reason) {
+            this.line = line;
+            this.reason = reason;
+        }
+
+        public long getLine() {
+            return line;
+        }
+
+        public String getReason() {
+            return reason;
+        }
+    }
+}
@@ -0,0 +1,495 @@
+package com.space.service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.CRC32;
+
+// append-only log of byte records in memory-mapped segment files of a fixed size, named after the
+// offset of their first byte. A record is [int length][int crc32][payload]; an int of -1 closes a
+// segment that was rolled, zeros mean nothing was written there yet. Offsets are global: segment
+// base plus position, so an offset stays valid across restarts.
+// Opening runs recovery on the last segment: records are checked up to the first one with a bad
+// length or checksum, which is where a crash or a truncated copy cut the file, and everything from
+// there on is zeroed before new records go in.
+// Durability: SYNC forces the mapping after every append, GROUP makes appenders wait for a flusher
+// thread that forces once for everything written in the meantime, ASYNC lets the same flusher run
+// without waiting for it, and NONE leaves write-back to the OS. Every mode survives a process crash,
+// since the written pages belong to the page cache; the forcing modes also survive losing the machine.
+// A single writer can batch on its own: write for every record, then one flush for all of them
+public class MappedJournal implements Closeable {
+    public enum Durability {
+        SYNC, GROUP, ASYNC, NONE
+    }
+
+    static final int HEADER_BYTES = 8;
+    private static final int SEGMENT_END = -1;
+    private static final String SUFFIX = ".journal";
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final Durability durability;
+    private final long groupCommitNanos;
+
+    private final ConcurrentSkipListMap<Long, Path> segments = new ConcurrentSkipListMap<>();
+    private final CRC32 crc = new CRC32();
+    private Segment current;
+    private long writeOffset;
+    // everything below is complete and may be read
+    private volatile long committedOffset;
+
+    private final Object flushLock = new Object();
+    private long flushedOffset;
+    private final Thread flusher;
+    private volatile boolean closed;
+
+    private final Object appended = new Object();
+    private volatile int tailWaiters;
+
+    private final LongAdder appends = new LongAdder();
+    private final LongAdder appendedBytes = new LongAdder();
+    private final LongAdder forces = new LongAdder();
+    private final LongAdder forceNanos = new LongAdder();
+    private final LongAdder recoveredBytes = new LongAdder();
+
+    public MappedJournal(Path directory, int segmentBytes, Durability durability, long groupCommitMillis) throws IOException {
+        if (segmentBytes < 1024) {
+            throw new IllegalArgumentException("segments must be at least 1024 bytes");
+        }
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.durability = durability;
+        this.groupCommitNanos = TimeUnit.MILLISECONDS.toNanos(groupCommitMillis);
+        Files.createDirectories(directory);
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                segments.put(Long.parseLong(name.substring(0, name.length() - SUFFIX.length())), file);
+            }
+        }
+        recover();
+        flushedOffset = writeOffset;
+
+        if (durability == Durability.GROUP || durability == Durability.ASYNC) {
+            flusher = new Thread(this::flushLoop, "journal-flush-" + directory.getFileName());
+            flusher.setDaemon(true);
+            flusher.start();
+        } else {
+            flusher = null;
+        }
+    }
+
+    private void recover() throws IOException {
+        if (segments.isEmpty()) {
+            current = openSegment(0);
+            return;
+        }
+        current = openSegment(segments.lastKey());
+        MappedByteBuffer buffer = current.buffer;
+        int position = 0;
+        while (position + HEADER_BYTES <= segmentBytes) {
+            int length = buffer.getInt(position);
+            if (length == SEGMENT_END) {
+                // the crash came between closing this segment and creating the next one
+                current.close();
+                current = openSegment(current.base + segmentBytes);
+                position = 0;
+                break;
+            }
+            if (!valid(buffer, position, length)) {
+                break;
+            }
+            position += HEADER_BYTES + length;
+        }
+        for (int i = position; i < segmentBytes; i++) {
+            if (buffer.get(i) != 0) {
+                buffer.put(i, (byte) 0);
+                recoveredBytes.increment();
+            }
+        }
+        writeOffset = current.base + position;
+        committedOffset = writeOffset;
+    }
+
+    private boolean valid(ByteBuffer buffer, int position, int length) {
+        if (length <= 0 || length > buffer.limit() - position - HEADER_BYTES) {
+            return false;
+        }
+        ByteBuffer payload = buffer.duplicate();
+        payload.limit(position + HEADER_BYTES + length).position(position + HEADER_BYTES);
+        CRC32 check = new CRC32();
+        check.update(payload);
+        return (int) check.getValue() == buffer.getInt(position + 4);
+    }
+
+    private Segment openSegment(long base) throws IOException {
+        Path file = directory.resolve(String.format("%020d%s", base, SUFFIX));
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        // mapping past the end grows the file, a short (truncated) segment comes back zero-filled
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        segments.put(base, file);
+        return new Segment(base, channel, buffer);
+    }
+
+    // returns the offset of the record; with SYNC or GROUP durability only once it has been forced to disk
+    public long append(ByteBuffer payload) {
+        int length = payload.remaining();
+        long offset = write(payload);
+        flush(offset + HEADER_BYTES + length);
+        return offset;
+    }
+
+    // like append, but returns as soon as the record is readable; flush then covers every record
+    // written before it with one force
+    public long write(ByteBuffer payload) {
+        int length = payload.remaining();
+        if (length == 0 || HEADER_BYTES + length > segmentBytes - 4) {
+            throw new IllegalArgumentException("record of " + length + " bytes does not fit a segment");
+        }
+        long offset;
+        synchronized (this) {
+            if (closed) {
+                throw new IllegalStateException("journal is closed");
+            }
+            int position = (int) (writeOffset - current.base);
+            if (position + HEADER_BYTES + length > segmentBytes - 4) {
+                roll(position);
+                position = 0;
+            }
+            crc.reset();
+            crc.update(payload.duplicate());
+            ByteBuffer target = current.buffer.duplicate();
+            target.position(position + 4);
+            target.putInt((int) crc.getValue());
+            target.put(payload);
+            // the length goes in last, a reader never sees a length without its record
+            current.buffer.putInt(position, length);
+
+            offset = writeOffset;
+            writeOffset = offset + HEADER_BYTES + length;
+            committedOffset = writeOffset;
+        }
+        appends.increment();
+        appendedBytes.add(HEADER_BYTES + length);
+
+        if (tailWaiters > 0) {
+            synchronized (appended) {
+                appended.notifyAll();
+            }
+        }
+        return offset;
+    }
+
+    // makes everything written so far as durable as the mode promises: forced here with SYNC,
+    // forced by the flusher and waited for with GROUP, handed to the flusher with ASYNC
+    public void flush() {
+        flush(committedOffset);
+    }
+
+    private void flush(long upTo) {
+        if (durability == Durability.SYNC) {
+            synchronized (this) {
+                if (!closed && flushedOffset() < upTo) {
+                    force(current, committedOffset);
+                }
+            }
+        } else if (durability == Durability.GROUP) {
+            awaitDurable(upTo);
+        } else if (durability == Durability.ASYNC) {
+            synchronized (flushLock) {
+                flushLock.notifyAll();
+            }
+        }
+    }
+
+    private long flushedOffset() {
+        synchronized (flushLock) {
+            return flushedOffset;
+        }
+    }
+
+    private void roll(int position) {
+        current.buffer.putInt(position, SEGMENT_END);
+        Segment previous = current;
+        try {
+            current = openSegment(previous.base + segmentBytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        writeOffset = current.base;
+        committedOffset = writeOffset;
+        // the flusher only ever forces the current segment, so the old one is finished here
+        if (durability != Durability.NONE) {
+            force(previous, current.base);
+        }
+        previous.close();
+    }
+
+    private void force(Segment segment, long upTo) {
+        long start = System.nanoTime();
+        segment.buffer.force();
+        forces.increment();
+        forceNanos.add(System.nanoTime() - start);
+        synchronized (flushLock) {
+            if (upTo > flushedOffset) {
+                flushedOffset = upTo;
+            }
+            flushLock.notifyAll();
+        }
+    }
+
+    private void awaitDurable(long offset) {
+        synchronized (flushLock) {
+            flushLock.notifyAll();
+            while (flushedOffset < offset && !closed) {
+                try {
+                    flushLock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void flushLoop() {
+        while (!closed) {
+            synchronized (flushLock) {
+                while (flushedOffset >= committedOffset && !closed) {
+                    try {
+                        flushLock.wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+            }
+            // let more appends join this force
+            long wake = System.nanoTime() + groupCommitNanos;
+            long remaining;
+            while ((remaining = wake - System.nanoTime()) > 0 && !closed) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(remaining);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+            Segment segment;
+            long upTo;
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                segment = current;
+                upTo = committedOffset;
+            }
+            force(segment, upTo);
+        }
+    }
+
+    public long getCommittedOffset() {
+        return committedOffset;
+    }
+
+    public Durability getDurability() {
+        return durability;
+    }
+
+    public Reader reader(long offset) {
+        return new Reader(offset);
+    }
+
+    public Map<String, Object> snapshot(Map<String, Object> stats) {
+        stats.put("directory", directory.toString());
+        stats.put("durability", durability.name());
+        stats.put("segmentBytes", segmentBytes);
+        stats.put("segments", segments.size());
+        stats.put("committedOffset", committedOffset);
+        synchronized (flushLock) {
+            stats.put("flushedOffset", flushedOffset);
+        }
+        long forceCount = forces.sum();
+        stats.put("appends", appends.sum());
+        stats.put("appendedBytes", appendedBytes.sum());
+        stats.put("forces", forceCount);
+        stats.put("appendsPerForce", forceCount == 0 ? 0.0 : (double) appends.sum() / forceCount);
+        stats.put("forceMillisAvg", forceCount == 0 ? 0.0 : forceNanos.sum() / 1_000_000.0 / forceCount);
+        stats.put("recoveredBytes", recoveredBytes.sum());
+        return stats;
+    }
+
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            if (durability != Durability.NONE) {
+                force(current, committedOffset);
+            }
+            closed = true;
+            current.close();
+        }
+        synchronized (flushLock) {
+            flushLock.notifyAll();
+        }
+        if (flusher != null) {
+            flusher.interrupt();
+            // a closed journal no longer touches its mapping, the files may be moved or truncated
+            try {
+                flusher.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    // the bytes of one segment for a reader: the writer's own mapping for the current segment, so
+    // what the committed offset covers is visible, a read-only mapping for older ones
+    private synchronized ByteBuffer segmentBuffer(long base) throws IOException {
+        if (current.base == base && !closed) {
+            return current.buffer.duplicate();
+        }
+        Path file = segments.get(base);
+        if (file == null) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(channel.size(), segmentBytes));
+        }
+    }
+
+    public static final class Entry {
+        private final long offset;
+        private final long nextOffset;
+        private final ByteBuffer payload;
+
+        Entry(long offset, long nextOffset, ByteBuffer payload) {
+            this.offset = offset;
+            this.nextOffset = nextOffset;
+            this.payload = payload;
+        }
+
+        public long getOffset() {
+            return offset;
+        }
+
+        // where a reader resumes after this record
+        public long getNextOffset() {
+            return nextOffset;
+        }
+
+        public ByteBuffer getPayload() {
+            return payload.duplicate();
+        }
+    }
+
+    // reads forward from a record offset (0, or one handed out by append or Entry.getNextOffset).
+    // A damaged stretch inside an older segment is skipped to the next segment and counted as a gap
+    public final class Reader {
+        private long offset;
+        private long base = -1;
+        private ByteBuffer buffer;
+        private long gaps;
+
+        private Reader(long offset) {
+            this.offset = offset;
+        }
+
+        public long getOffset() {
+            return offset;
+        }
+
+        public long getGaps() {
+            return gaps;
+        }
+
+        // the next committed record, or null when the reader has caught up
+        public Entry next() {
+            try {
+                while (offset < committedOffset) {
+                    long segmentBase = segments.floorKey(offset);
+                    if (segmentBase != base) {
+                        buffer = segmentBuffer(segmentBase);
+                        base = segmentBase;
+                    }
+                    int position = (int) (offset - base);
+                    int length = position + HEADER_BYTES <= buffer.limit() ? buffer.getInt(position) : 0;
+                    if (length != SEGMENT_END && valid(buffer, position, length)) {
+                        ByteBuffer payload = buffer.duplicate();
+                        payload.limit(position + HEADER_BYTES + length).position(position + HEADER_BYTES);
+                        Entry entry = new Entry(offset, offset + HEADER_BYTES + length, payload.slice());
+                        offset = entry.nextOffset;
+                        return entry;
+                    }
+                    Long nextBase = segments.higherKey(base);
+                    if (nextBase == null) {
+                        return null;
+                    }
+                    if (length != SEGMENT_END) {
+                        gaps++;
+                    }
+                    offset = nextBase;
+                }
+                return null;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        // like next, but waits up to the timeout for a record to be appended
+        public Entry poll(long timeout, TimeUnit unit) throws InterruptedException {
+            long deadline = System.nanoTime() + unit.toNanos(timeout);
+            Entry entry = next();
+            while (entry == null) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0 || closed) {
+                    return null;
+                }
+                synchronized (appended) {
+                    tailWaiters++;
+                    try {
+                        if (offset >= committedOffset) {
+                            TimeUnit.NANOSECONDS.timedWait(appended, remaining);
+                        }
+                    } finally {
+                        tailWaiters--;
+                    }
+                }
+                entry = next();
+            }
+            return entry;
+        }
+    }
+
+    private static final class Segment {
+        final long base;
+        final FileChannel channel;
+        final MappedByteBuffer buffer;
+
+        Segment(long base, FileChannel channel, MappedByteBuffer buffer) {
+            this.base = base;
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+
+        // the mapping stays valid after the channel is closed and goes away with the buffer
+        void close() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.space.service;
+
+import com.space.model.ShipRating;
+import com.space.repository.ShipRepository;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.BitSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+// rewrites every stored rating with the current ShipRating formula. The id range is cut into
+// chunks that a fork/join pool recomputes in parallel, one transaction and one JDBC batch each.
+// A rating configuration the formula cannot use fails the deployment here rather than a later write
+@Service
+public class RatingRecomputeJob implements InitializingBean {
+    public static final int DEFAULT_CHUNK_SIZE = 5000;
+    public static final int DEFAULT_PARALLELISM = Integer.getInteger("cosmoport.recompute.parallelism", 4);
+
+    @Autowired
+    ShipRepository repository;
+    @Autowired
+    PlatformTransactionManager transactionManager;
+    @Autowired
+    ShipCache cache;
+    @Autowired
+    ShipReplica replica;
+    @Autowired
+    ShipResultCache resultCache;
+    @Autowired
+    ShipVersions versions;
+    @Autowired
+    ShipChangeFeed feed;
+    @Autowired
+    ShipJournal journal;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile Run lastRun;
+
+    @Override
+    public void afterPropertiesSet() {
+        ShipRating.checkConfiguration();
+    }
+
+    // runs in the background; false if a run is already in progress
+    public boolean start(int parallelism, long fromId) {
+        checkArguments(parallelism, DEFAULT_CHUNK_SIZE);
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+        Thread thread = new Thread(() -> execute(parallelism, DEFAULT_CHUNK_SIZE, fromId, progress -> {
+        }), "rating-recompute");
+        thread.setDaemon(true);
+        thread.start();
+        return true;
+    }
+
+    public RecomputeProgress run(int parallelism, int chunkSize, long fromId, Consumer<RecomputeProgress> progress) {
+        checkArguments(parallelism, chunkSize);
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("a rating recomputation is already running");
+        }
+        return execute(parallelism, chunkSize, fromId, progress);
+    }
+
+    public RecomputeProgress getProgress() {
+        Run run = lastRun;
+        return run == null ? null : run.snapshot();
+    }
+
+    private static void checkArguments(int parallelism, int chunkSize) {
+        if (parallelism < 1 || chunkSize < 1) {
+            throw new IllegalArgumentException("parallelism and chunk size must be positive");
+        }
+    }
+
+    private RecomputeProgress execute(int parallelism, int chunkSize, long fromId, Consumer<RecomputeProgress> progress) {
+        ForkJoinPool pool = null;
+        Run run = null;
+        try {
+            Long minId = repository.findMinId();
+            Long maxId = repository.findMaxId();
+            long start = minId == null ? fromId : Math.max(fromId, minId);
+            long end = maxId == null ? start : Math.max(start, maxId + 1);
+
+            run = new Run(parallelism, chunkSize, start, end, progress);
+            lastRun = run;
+            pool = new ForkJoinPool(parallelism);
+            pool.invoke(new ChunkTask(run, start, end));
+            run.finish(null);
+        } catch (RuntimeException e) {
+            if (run == null) {
+                run = new Run(parallelism, chunkSize, fromId, fromId, progress);
+                lastRun = run;
+            }
+            run.finish(e);
+        } finally {
+            if (pool != null) {
+                pool.shutdown();
+            }
+            // partially applied runs leave changed rows behind as well
+            cache.evictAll();
+            if (replica.isEnabled()) {
+                replica.reload();
+            }
+            versions.allShipsChanged();
+            resultCache.invalidate();
+            journal.ratingsRecomputed(ShipRating.REFERENCE_YEAR);
+            feed.resync("ratings recomputed");
+            running.set(false);
+        }
+        return run.snapshot();
+    }
+
+    private class ChunkTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Run run;
+        private final long fromId;
+        private final long toId;
+
+        ChunkTask(Run run, long fromId, long toId) {
+            this.run = run;
+            this.fromId = fromId;
+            this.toId = toId;
+        }
+
+        @Override
+        protected void compute() {
+            long chunks = (toId - fromId + run.chunkSize - 1) / run.chunkSize;
+            if (chunks <= 1) {
+                if (toId > fromId) {
+                    TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+                    int updated = transaction.execute(status -> repository.recomputeRatings(fromId, toId));
+                    run.chunkDone(fromId, updated);
+                }
+                return;
+            }
+            long middle = fromId + chunks / 2 * run.chunkSize;
+            invokeAll(new ChunkTask(run, fromId, middle), new ChunkTask(run, middle, toId));
+        }
+    }
+
+    private static class Run {
+        private final int parallelism;
+        private final int chunkSize;
+        private final long fromId;
+        private final long toId;
+        private final int totalChunks;
+        private final Consumer<RecomputeProgress> progress;
+        private final long startNanos = System.nanoTime();
+
+        private final BitSet completed = new BitSet();
+        private int completedChunks;
+        private long ratingsUpdated;
+        private RecomputeProgress.State state = RecomputeProgress.State.RUNNING;
+        private String error;
+
+        Run(int parallelism, int chunkSize, long fromId, long toId, Consumer<RecomputeProgress> progress) {
+            this.parallelism = parallelism;
+            this.chunkSize = chunkSize;
+            this.fromId = fromId;
+            this.toId = toId;
+            this.totalChunks = Math.toIntExact((toId - fromId + chunkSize - 1) / chunkSize);
+            this.progress = progress;
+        }
+
+        synchronized void chunkDone(long chunkFromId, int updated) {
+            completed.set(Math.toIntExact((chunkFromId - fromId) / chunkSize));
+            completedChunks++;
+            ratingsUpdated += updated;
+            progress.accept(snapshot());
+        }
+
+        synchronized void finish(RuntimeException e) {
+            state = e == null ? RecomputeProgress.State.DONE : RecomputeProgress.State.FAILED;
+            error = e == null ? null : String.valueOf(e.getMessage());
+            progress.accept(snapshot());
+        }
+
+        synchronized RecomputeProgress snapshot() {
+            // chunks finish out of order; only the completed prefix is safe to skip on resume
+            long resumeFromId = Math.min(toId, fromId + (long) completed.nextClearBit(0) * chunkSize);
+            return new RecomputeProgress(state, parallelism, fromId, toId, totalChunks, completedChunks,
+                    ratingsUpdated, resumeFromId, (System.nanoTime() - startNanos) / 1_000_000, error);
+        }
+    }
+}
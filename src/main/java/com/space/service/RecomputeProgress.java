@@ -0,0 +1,82 @@
+package com.space.service;
+
+public class RecomputeProgress {
+    public enum State {
+        RUNNING,
+        DONE,
+        FAILED
+    }
+
+    private State state;
+    private int parallelism;
+    private long fromId;
+    private long toId;
+    private int totalChunks;
+    private int completedChunks;
+    private long ratingsUpdated;
+    // every id below this one is recomputed; pass it as fromId to resume an interrupted run
+    private long resumeFromId;
+    private long elapsedMillis;
+    private String error;
+
+    RecomputeProgress(State state, int parallelism, long fromId, long toId, int totalChunks, int completedChunks,
+                      long ratingsUpdated, long resumeFromId, long elapsedMillis, String error) {
+        this.state = state;
+        this.parallelism = parallelism;
+        this.fromId = fromId;
+        this.toId = toId;
+        this.totalChunks = totalChunks;
+        this.completedChunks = completedChunks;
+        this.ratingsUpdated = ratingsUpdated;
+        this.resumeFromId = resumeFromId;
+        this.elapsedMillis = elapsedMillis;
+        this.error = error;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public long getFromId() {
+        return fromId;
+    }
+
+    public long getToId() {
+        return toId;
+    }
+
+    public int getTotalChunks() {
+        return totalChunks;
+    }
+
+    public int getCompletedChunks() {
+        return completedChunks;
+    }
+
+    public long getRatingsUpdated() {
+        return ratingsUpdated;
+    }
+
+    public long getResumeFromId() {
+        return resumeFromId;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: %d/%d chunks, %d ratings updated, resume from id %d, %d ms%s",
+                state, completedChunks, totalChunks, ratingsUpdated, resumeFromId, elapsedMillis,
+                error == null ? "" : " (" + error + ")");
+    }
+}
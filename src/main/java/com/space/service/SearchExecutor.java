@@ -0,0 +1,179 @@
+package com.space.service;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+// runs the async search and count handlers off the servlet threads, on a fixed pool with a bounded
+// queue: when the queue is full submit fails fast instead of piling work up. A task whose future
+// was already completed (the request timed out while it waited) is skipped without touching JDBC.
+// Sized by cosmoport.search.threads, cosmoport.search.queue and cosmoport.search.timeoutMillis.
+// In virtual-thread mode every task gets its own virtual thread and the same two limits become
+// semaphores: threads still caps concurrent queries, since the connection pool is the real bound,
+// and waiting for a slot costs no platform thread
+@Service
+public class SearchExecutor implements DisposableBean {
+    public static final int THREADS = Integer.getInteger("cosmoport.search.threads", 16);
+    public static final int QUEUE = Integer.getInteger("cosmoport.search.queue", 100);
+    public static final long TIMEOUT_MILLIS = Long.getLong("cosmoport.search.timeoutMillis", 10_000L);
+
+    private final ThreadPoolExecutor pool;
+    private final ExecutorService virtualThreads;
+    private final Semaphore admitted;
+    private final Semaphore slots;
+    private final int threads;
+    private final int queueCapacity;
+    private final long timeoutMillis;
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder timedOut = new LongAdder();
+    private final LongAdder skipped = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+    private final LongAccumulator maxWaitNanos = new LongAccumulator(Long::max, 0);
+    private final LongAdder execNanos = new LongAdder();
+    private final LongAccumulator maxExecNanos = new LongAccumulator(Long::max, 0);
+
+    public SearchExecutor() {
+        this(THREADS, QUEUE, TIMEOUT_MILLIS, VirtualThreads.ENABLED);
+    }
+
+    SearchExecutor(int threads, int queueCapacity, long timeoutMillis, boolean virtual) {
+        if (virtual) {
+            this.pool = null;
+            this.virtualThreads = VirtualThreads.newThreadPerTaskExecutor("ship-search-");
+            this.admitted = new Semaphore(threads + queueCapacity);
+            this.slots = new Semaphore(threads);
+        } else {
+            AtomicInteger count = new AtomicInteger();
+            this.pool = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                Thread thread = new Thread(runnable, "ship-search-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }, new ThreadPoolExecutor.AbortPolicy());
+            this.virtualThreads = null;
+            this.admitted = null;
+            this.slots = null;
+        }
+        this.threads = threads;
+        this.queueCapacity = queueCapacity;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    public long getTimeoutMillis() {
+        return timeoutMillis;
+    }
+
+    // the returned future fails with RejectedExecutionException when the queue is full
+    public <T> CompletableFuture<T> submit(Supplier<T> work) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        long enqueued = System.nanoTime();
+        try {
+            if (virtualThreads == null) {
+                pool.execute(() -> run(work, future, enqueued));
+            } else {
+                if (!admitted.tryAcquire()) {
+                    throw new RejectedExecutionException("search queue is full");
+                }
+                virtualThreads.execute(() -> {
+                    try {
+                        slots.acquireUninterruptibly();
+                        try {
+                            run(work, future, enqueued);
+                        } finally {
+                            slots.release();
+                        }
+                    } finally {
+                        admitted.release();
+                    }
+                });
+            }
+            submitted.increment();
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    private <T> void run(Supplier<T> work, CompletableFuture<T> future, long enqueued) {
+        long start = System.nanoTime();
+        waitNanos.add(start - enqueued);
+        maxWaitNanos.accumulate(start - enqueued);
+        if (future.isDone()) {
+            skipped.increment();
+            return;
+        }
+        try {
+            future.complete(work.get());
+            completed.increment();
+        } catch (RuntimeException | Error e) {
+            failed.increment();
+            future.completeExceptionally(e);
+        } finally {
+            execNanos.add(System.nanoTime() - start);
+            maxExecNanos.accumulate(System.nanoTime() - start);
+        }
+    }
+
+    // called by the handler when the request gave up waiting
+    public void timedOut(CompletableFuture<?> future) {
+        timedOut.increment();
+        future.cancel(false);
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("virtualThreads", virtualThreads != null);
+        stats.put("threads", threads);
+        if (virtualThreads == null) {
+            stats.put("active", pool.getActiveCount());
+            stats.put("queued", pool.getQueue().size());
+        } else {
+            int active = threads - slots.availablePermits();
+            stats.put("active", active);
+            stats.put("queued", Math.max(0, threads + queueCapacity - admitted.availablePermits() - active));
+        }
+        stats.put("queueCapacity", queueCapacity);
+        stats.put("timeoutMillis", timeoutMillis);
+
+        long started = completed.sum() + failed.sum() + skipped.sum();
+        long ran = completed.sum() + failed.sum();
+        stats.put("submitted", submitted.sum());
+        stats.put("rejected", rejected.sum());
+        stats.put("completed", completed.sum());
+        stats.put("failed", failed.sum());
+        stats.put("timedOut", timedOut.sum());
+        stats.put("skippedAfterTimeout", skipped.sum());
+        stats.put("queueWaitMillisAvg", started == 0 ? 0.0 : waitNanos.sum() / 1_000_000.0 / started);
+        stats.put("queueWaitMillisMax", TimeUnit.NANOSECONDS.toMillis(maxWaitNanos.get()));
+        stats.put("execMillisAvg", ran == 0 ? 0.0 : execNanos.sum() / 1_000_000.0 / ran);
+        stats.put("execMillisMax", TimeUnit.NANOSECONDS.toMillis(maxExecNanos.get()));
+        return stats;
+    }
+
+    @Override
+    public void destroy() {
+        if (virtualThreads == null) {
+            pool.shutdownNow();
+        } else {
+            virtualThreads.shutdownNow();
+        }
+    }
+}
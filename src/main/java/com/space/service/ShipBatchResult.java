@@ -0,0 +1,33 @@
+package com.space.service;
+
+public class ShipBatchResult {
+    private int index;
+    private Long id;
+    private boolean created;
+
+    private ShipBatchResult(int index, Long id, boolean created) {
+        this.index = index;
+        this.id = id;
+        this.created = created;
+    }
+
+    static ShipBatchResult created(int index, Long id) {
+        return new ShipBatchResult(index, id, true);
+    }
+
+    static ShipBatchResult rejected(int index) {
+        return new ShipBatchResult(index, null, false);
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public boolean isCreated() {
+        return created;
+    }
+}
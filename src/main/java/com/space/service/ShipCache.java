@@ -0,0 +1,60 @@
+package com.space.service;
+
+import com.space.model.Ship;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.stereotype.Service;
+
+import javax.persistence.Cache;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceUnit;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+@Service
+public class ShipCache {
+    @PersistenceUnit
+    EntityManagerFactory entityManagerFactory;
+
+    private final LongAdder evictions = new LongAdder();
+
+    public void evict(Long id) {
+        Cache cache = entityManagerFactory.getCache();
+        if (cache.contains(Ship.class, id)) {
+            cache.evict(Ship.class, id);
+            evictions.increment();
+        }
+    }
+
+    // writes that bypass Hibernate do not touch the update timestamps that guard cached query results
+    public void evictQueries() {
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictQueryRegions();
+    }
+
+    public void evictAll() {
+        Cache cache = entityManagerFactory.getCache();
+        cache.evict(Ship.class);
+        evictQueries();
+    }
+
+    public Map<String, Object> snapshot() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", statistics.isStatisticsEnabled());
+        stats.put("secondLevelHits", statistics.getSecondLevelCacheHitCount());
+        stats.put("secondLevelMisses", statistics.getSecondLevelCacheMissCount());
+        stats.put("secondLevelPuts", statistics.getSecondLevelCachePutCount());
+        stats.put("queryHits", statistics.getQueryCacheHitCount());
+        stats.put("queryMisses", statistics.getQueryCacheMissCount());
+        stats.put("queryPuts", statistics.getQueryCachePutCount());
+        stats.put("evictions", evictions.sum());
+
+        if (statistics.isStatisticsEnabled()) {
+            CacheRegionStatistics shipRegion = statistics.getDomainDataRegionStatistics(Ship.class.getName());
+            stats.put("shipEntriesInMemory", shipRegion.getElementCountInMemory());
+        }
+        return stats;
+    }
+}
@@ -0,0 +1,254 @@
+package com.space.service;
+
+import com.space.model.Ship;
+import com.space.model.ShipType;
+import com.space.model.ShipView;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayDeque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+// pushes ship mutations to subscribers once they are committed. Every subscriber has its own
+// bounded buffer drained by a small sender pool, so a slow connection never holds up a write: when
+// its buffer is full the buffered events are dropped and replaced by one RESYNC, after which the
+// client reloads and continues. With a filter, creates and updates that match are sent, an update
+// that no longer matches is sent as a delete when the ship matched before (it left the view), and
+// deletes always go out.
+// Bulk writes send RESYNC. Sequence numbers are taken and events buffered under one lock, so every
+// subscriber sees them in sequence order even when writes commit concurrently. Sized by
+// cosmoport.feed.buffer, cosmoport.feed.senders and cosmoport.feed.timeoutMillis
+@Service
+public class ShipChangeFeed implements DisposableBean {
+    public static final int BUFFER = Integer.getInteger("cosmoport.feed.buffer", 256);
+    public static final int SENDERS = Integer.getInteger("cosmoport.feed.senders", 4);
+    // connections are closed after this and EventSource clients reconnect on their own
+    public static final long TIMEOUT_MILLIS = Long.getLong("cosmoport.feed.timeoutMillis", 30 * 60_000L);
+
+    public interface Subscriber {
+        void send(ShipEvent event) throws Exception;
+    }
+
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    private final Object publishLock = new Object();
+    private final AtomicLong sequence = new AtomicLong();
+    private final ExecutorService senders;
+    private final int bufferSize;
+
+    private final LongAdder published = new LongAdder();
+    private final LongAdder delivered = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder overflows = new LongAdder();
+    private final LongAdder failedSubscribers = new LongAdder();
+
+    public ShipChangeFeed() {
+        this(BUFFER, SENDERS);
+    }
+
+    ShipChangeFeed(int bufferSize, int senders) {
+        AtomicInteger count = new AtomicInteger();
+        this.senders = VirtualThreads.ENABLED
+                ? VirtualThreads.newThreadPerTaskExecutor("ship-feed-")
+                : Executors.newFixedThreadPool(senders, runnable -> {
+            Thread thread = new Thread(runnable, "ship-feed-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.bufferSize = bufferSize;
+    }
+
+    // the first event a subscriber gets is a RESYNC, the point from which its view is current
+    public Subscription subscribe(Predicate<ShipView> filter, Subscriber subscriber) {
+        Subscription subscription = new Subscription(filter, subscriber);
+        synchronized (publishLock) {
+            subscriptions.add(subscription);
+            subscription.enqueue(new ShipEvent(sequence.incrementAndGet(), ShipEvent.Type.RESYNC, null, null, "subscribed"));
+        }
+        return subscription;
+    }
+
+    public void unsubscribe(Subscription subscription) {
+        subscription.closed = true;
+        subscriptions.remove(subscription);
+    }
+
+    public boolean hasSubscribers() {
+        return !subscriptions.isEmpty();
+    }
+
+    void shipCreated(Ship ship) {
+        ShipView view = view(ship);
+        publish(ShipEvent.Type.CREATED, view.getId(), view, null, null);
+    }
+
+    // previous is the ship as it was before the update, null if it was not read; a subscriber
+    // whose filter rejects the new state is then sent a delete in case it had the ship
+    void shipUpdated(ShipView previous, Ship ship) {
+        ShipView view = view(ship);
+        publish(ShipEvent.Type.UPDATED, view.getId(), view, previous, null);
+    }
+
+    void shipDeleted(long id) {
+        publish(ShipEvent.Type.DELETED, id, null, null, null);
+    }
+
+    void resync(String reason) {
+        publish(ShipEvent.Type.RESYNC, null, null, null, reason);
+    }
+
+    // enqueue only appends to a buffer and hands the drain to the sender pool, so the lock is short
+    private void publish(ShipEvent.Type type, Long shipId, ShipView view, ShipView previous, String reason) {
+        published.increment();
+        synchronized (publishLock) {
+            ShipEvent event = new ShipEvent(sequence.incrementAndGet(), type, shipId, view, reason);
+            ShipEvent leftView = null;
+            for (Subscription subscription : subscriptions) {
+                if (type == ShipEvent.Type.CREATED && !subscription.filter.test(view)) {
+                    continue;
+                }
+                if (type == ShipEvent.Type.UPDATED && !subscription.filter.test(view)) {
+                    if (previous != null && !subscription.filter.test(previous)) {
+                        continue;
+                    }
+                    if (leftView == null) {
+                        leftView = new ShipEvent(event.getSequence(), ShipEvent.Type.DELETED, shipId, null, null);
+                    }
+                    subscription.enqueue(leftView);
+                    continue;
+                }
+                subscription.enqueue(event);
+            }
+        }
+    }
+
+    private static ShipView view(Ship ship) {
+        return new ShipView(ship.getId(), ship.getName(), ship.getPlanet(), ship.getShipType(), ship.getProdDate(),
+                ship.getUsed(), ship.getSpeed(), ship.getCrewSize(), ship.getRating());
+    }
+
+    // the same conditions as ShipService.findViewsByCriteria, evaluated on one ship; name and planet
+    // match case-insensitively like the database collation does, and prodDate is taken at the start
+    // of its day like the DATE column and ShipReplica
+    public static Predicate<ShipView> filter(String name, String planet, ShipType shipType, Boolean isUsed,
+                                             Long after, Long before,
+                                             Integer minCrewSize, Integer maxCrewSize,
+                                             Double minSpeed, Double maxSpeed,
+                                             Double minRating, Double maxRating) {
+        String nameLowerCase = name == null ? null : name.toLowerCase(Locale.ROOT);
+        String planetLowerCase = planet == null ? null : planet.toLowerCase(Locale.ROOT);
+        long minProdDate = after == null ? Long.MIN_VALUE : ShipService.convertDateToYearBeggining(after).getTime();
+        long maxProdDate = before == null ? Long.MAX_VALUE : ShipService.convertDateToYearBeggining(before).getTime();
+        return ship -> (nameLowerCase == null || ship.getName().toLowerCase(Locale.ROOT).contains(nameLowerCase))
+                && (planetLowerCase == null || ship.getPlanet().toLowerCase(Locale.ROOT).contains(planetLowerCase))
+                && (shipType == null || shipType == ship.getShipType())
+                && (isUsed == null || isUsed.equals(ship.getUsed()))
+                && ShipReplica.startOfDay(ship.getProdDate()) >= minProdDate && ShipReplica.startOfDay(ship.getProdDate()) <= maxProdDate
+                && (minCrewSize == null || ship.getCrewSize() >= minCrewSize)
+                && (maxCrewSize == null || ship.getCrewSize() <= maxCrewSize)
+                && (minSpeed == null || ship.getSpeed() >= minSpeed)
+                && (maxSpeed == null || ship.getSpeed() <= maxSpeed)
+                && (minRating == null || ship.getRating() >= minRating)
+                && (maxRating == null || ship.getRating() <= maxRating);
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("subscribers", subscriptions.size());
+        stats.put("bufferSize", bufferSize);
+        stats.put("lastSequence", sequence.get());
+        stats.put("published", published.sum());
+        stats.put("delivered", delivered.sum());
+        stats.put("dropped", dropped.sum());
+        stats.put("overflows", overflows.sum());
+        stats.put("failedSubscribers", failedSubscribers.sum());
+        return stats;
+    }
+
+    @Override
+    public void destroy() {
+        senders.shutdownNow();
+    }
+
+    public final class Subscription {
+        private final Predicate<ShipView> filter;
+        private final Subscriber subscriber;
+        private final ArrayDeque<ShipEvent> buffer = new ArrayDeque<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private volatile boolean closed;
+
+        private Subscription(Predicate<ShipView> filter, Subscriber subscriber) {
+            this.filter = filter;
+            this.subscriber = subscriber;
+        }
+
+        private void enqueue(ShipEvent event) {
+            synchronized (buffer) {
+                if (buffer.size() >= bufferSize) {
+                    dropped.add(buffer.size());
+                    overflows.increment();
+                    buffer.clear();
+                    event = new ShipEvent(event.getSequence(), ShipEvent.Type.RESYNC, null, null, "overflow");
+                } else if (!buffer.isEmpty() && buffer.peekLast().getType() == ShipEvent.Type.RESYNC
+                        && "overflow".equals(buffer.peekLast().getReason())) {
+                    // the client reloads anyway, events behind a pending overflow RESYNC add nothing
+                    dropped.increment();
+                    return;
+                }
+                buffer.addLast(event);
+            }
+            schedule();
+        }
+
+        private void schedule() {
+            if (!closed && scheduled.compareAndSet(false, true)) {
+                try {
+                    senders.execute(this::drain);
+                } catch (RejectedExecutionException e) {
+                    scheduled.set(false);
+                }
+            }
+        }
+
+        private void drain() {
+            while (!closed) {
+                ShipEvent event;
+                synchronized (buffer) {
+                    event = buffer.pollFirst();
+                }
+                if (event == null) {
+                    scheduled.set(false);
+                    // an event enqueued between the poll and the reset would otherwise wait for the next one
+                    synchronized (buffer) {
+                        if (buffer.isEmpty()) {
+                            return;
+                        }
+                    }
+                    if (!scheduled.compareAndSet(false, true)) {
+                        return;
+                    }
+                    continue;
+                }
+                try {
+                    subscriber.send(event);
+                    delivered.increment();
+                } catch (Exception e) {
+                    failedSubscribers.increment();
+                    unsubscribe(this);
+                    return;
+                }
+            }
+        }
+    }
+}
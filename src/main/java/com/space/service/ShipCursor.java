@@ -0,0 +1,74 @@
+package com.space.service;
+
+import com.space.controller.ShipOrder;
+import com.space.model.ShipView;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Date;
+
+public class ShipCursor {
+    private static final String SEPARATOR = "|";
+
+    private final ShipOrder order;
+    private final Comparable<?> key;
+    private final long id;
+
+    private ShipCursor(ShipOrder order, Comparable<?> key, long id) {
+        this.order = order;
+        this.key = key;
+        this.id = id;
+    }
+
+    public static ShipCursor after(ShipOrder order, ShipView ship) {
+        switch (order) {
+            case SPEED:
+                return new ShipCursor(order, ship.getSpeed(), ship.getId());
+            case RATING:
+                return new ShipCursor(order, ship.getRating(), ship.getId());
+            case DATE:
+                return new ShipCursor(order, new Date(ship.getProdDate().getTime()), ship.getId());
+            default:
+                return new ShipCursor(order, ship.getId(), ship.getId());
+        }
+    }
+
+    public static ShipCursor decode(String cursor, ShipOrder order) {
+        String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|");
+        if (parts.length != 3 || !parts[0].equals(order.name())) {
+            throw new IllegalArgumentException("Cursor does not match order " + order);
+        }
+
+        Comparable<?> key;
+        switch (order) {
+            case SPEED:
+            case RATING:
+                key = Double.valueOf(parts[1]);
+                break;
+            case DATE:
+                key = new Date(Long.parseLong(parts[1]));
+                break;
+            default:
+                key = Long.valueOf(parts[1]);
+        }
+        return new ShipCursor(order, key, Long.parseLong(parts[2]));
+    }
+
+    public String encode() {
+        Object rawKey = key instanceof Date ? ((Date) key).getTime() : key;
+        String raw = order.name() + SEPARATOR + rawKey + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public ShipOrder getOrder() {
+        return order;
+    }
+
+    public Comparable<?> getKey() {
+        return key;
+    }
+
+    public long getId() {
+        return id;
+    }
+}
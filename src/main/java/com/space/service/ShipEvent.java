@@ -0,0 +1,47 @@
+package com.space.service;
+
+import com.space.model.ShipView;
+
+// one entry of the change feed. Sequence numbers are global and increasing, so a subscriber can
+// tell events apart across reconnects; a RESYNC means events were lost and the view must be reloaded
+public class ShipEvent {
+    public enum Type {
+        CREATED, UPDATED, DELETED, RESYNC
+    }
+
+    private final long sequence;
+    private final Type type;
+    private final Long shipId;
+    private final ShipView ship;
+    private final String reason;
+
+    ShipEvent(long sequence, Type type, Long shipId, ShipView ship, String reason) {
+        this.sequence = sequence;
+        this.type = type;
+        this.shipId = shipId;
+        this.ship = ship;
+        this.reason = reason;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public Long getShipId() {
+        return shipId;
+    }
+
+    // set for CREATED and UPDATED
+    public ShipView getShip() {
+        return ship;
+    }
+
+    // set for RESYNC
+    public String getReason() {
+        return reason;
+    }
+}
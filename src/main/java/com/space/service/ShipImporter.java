@@ -0,0 +1,212 @@
+package com.space.service;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.space.model.Ship;
+import com.space.model.ShipType;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+@Service
+public class ShipImporter {
+    private static final int CHUNK_SIZE = 1000;
+    // parsing stops while this many chunks wait for the database, which bounds memory to a few chunks
+    private static final int MAX_CHUNKS_IN_FLIGHT = 2;
+
+    public enum Format {
+        CSV,
+        NDJSON
+    }
+
+    @Autowired
+    ShipService service;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    public ShipImporter() {
+        mapper.setVisibility(PropertyAccessor.ALL, JsonAutoDetect.Visibility.NONE);
+        mapper.setVisibility(PropertyAccessor.FIELD, JsonAutoDetect.Visibility.ANY);
+    }
+
+    public ImportReport importShips(InputStream input, Format format, Consumer<ImportReport> progress) throws IOException {
+        ImportReport report = new ImportReport();
+        // one writer keeps the chunks in file order; in virtual-thread mode it waits on JDBC as a virtual thread
+        ExecutorService writer = VirtualThreads.ENABLED
+                ? Executors.newSingleThreadExecutor(VirtualThreads.factory("ship-import-"))
+                : Executors.newSingleThreadExecutor();
+        Deque<Chunk> inFlight = new ArrayDeque<>();
+
+        try {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+            long lineNumber = 0;
+            Map<String, Integer> columns = null;
+            if (format == Format.CSV) {
+                columns = parseHeader(reader.readLine());
+                lineNumber++;
+            }
+
+            Chunk chunk = new Chunk();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                report.row();
+
+                Ship ship;
+                try {
+                    ship = format == Format.CSV ? fromCsv(columns, line) : mapper.readValue(line, Ship.class);
+                } catch (IOException | IllegalArgumentException e) {
+                    report.reject(lineNumber, "unparseable row");
+                    continue;
+                }
+                chunk.add(lineNumber, ship);
+
+                if (chunk.ships.size() == CHUNK_SIZE) {
+                    submit(writer, inFlight, chunk, report, progress);
+                    chunk = new Chunk();
+                }
+            }
+            if (!chunk.ships.isEmpty()) {
+                submit(writer, inFlight, chunk, report, progress);
+            }
+            while (!inFlight.isEmpty()) {
+                complete(inFlight.poll(), report, progress);
+            }
+        } finally {
+            writer.shutdownNow();
+        }
+        return report;
+    }
+
+    private void submit(ExecutorService writer, Deque<Chunk> inFlight, Chunk chunk, ImportReport report, Consumer<ImportReport> progress) {
+        if (inFlight.size() >= MAX_CHUNKS_IN_FLIGHT) {
+            complete(inFlight.poll(), report, progress);
+        }
+        List<Ship> ships = chunk.ships;
+        chunk.results = writer.submit(() -> service.createAll(ships));
+        inFlight.add(chunk);
+    }
+
+    private void complete(Chunk chunk, ImportReport report, Consumer<ImportReport> progress) {
+        List<ShipBatchResult> results;
+        try {
+            results = chunk.results.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Import interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Import chunk failed at line " + chunk.lines.get(0), e.getCause());
+        }
+
+        for (ShipBatchResult result : results) {
+            if (result.isCreated()) {
+                report.imported();
+            } else {
+                report.reject(chunk.lines.get(result.getIndex()), "invalid ship data");
+            }
+        }
+        if (progress != null) {
+            progress.accept(report);
+        }
+    }
+
+    private Map<String, Integer> parseHeader(String header) throws IOException {
+        if (header == null) {
+            throw new IOException("CSV input has no header");
+        }
+        Map<String, Integer> columns = new HashMap<>();
+        List<String> names = splitCsv(header);
+        for (int i = 0; i < names.size(); i++) {
+            columns.put(names.get(i).trim(), i);
+        }
+        return columns;
+    }
+
+    private Ship fromCsv(Map<String, Integer> columns, String line) {
+        List<String> values = splitCsv(line);
+        String shipType = value(columns, values, "shipType");
+        String prodDate = value(columns, values, "prodDate");
+        String isUsed = value(columns, values, "isUsed");
+        String speed = value(columns, values, "speed");
+        String crewSize = value(columns, values, "crewSize");
+
+        return new Ship(null,
+                value(columns, values, "name"),
+                value(columns, values, "planet"),
+                shipType == null ? null : ShipType.valueOf(shipType),
+                prodDate == null ? null : new Date(Long.parseLong(prodDate)),
+                isUsed == null ? Boolean.FALSE : Boolean.valueOf(isUsed),
+                speed == null ? null : Double.valueOf(speed),
+                crewSize == null ? null : Integer.valueOf(crewSize),
+                null);
+    }
+
+    private String value(Map<String, Integer> columns, List<String> values, String column) {
+        Integer index = columns.get(column);
+        if (index == null || index >= values.size() || values.get(index).isEmpty()) {
+            return null;
+        }
+        return values.get(index);
+    }
+
+    // RFC 4180 fields on a single line: quoted fields may contain commas and doubled quotes
+    private List<String> splitCsv(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    value.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    value.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(value.toString());
+                value.setLength(0);
+            } else {
+                value.append(c);
+            }
+        }
+        values.add(value.toString());
+        return values;
+    }
+
+    private static class Chunk {
+        final List<Long> lines = new ArrayList<>(CHUNK_SIZE);
+        final List<Ship> ships = new ArrayList<>(CHUNK_SIZE);
+        Future<List<ShipBatchResult>> results;
+
+        void add(long line, Ship ship) {
+            lines.add(line);
+            ships.add(ship);
+        }
+    }
+}
@@ -0,0 +1,359 @@
+package com.space.service;
+
+import com.space.model.Ship;
+import com.space.model.ShipType;
+import com.space.model.ShipView;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+// writes every committed ship mutation to a MappedJournal, enabled with -Dcosmoport.journal.dir=<path>.
+// Records are binary: type, commit time and id, plus the whole row for creates and updates, so
+// replaying from offset 0 rebuilds the table without reading the database. Bulk deletes become one
+// record per deleted id and a rating recomputation one record with its reference year.
+// cosmoport.journal.durability picks SYNC, GROUP (default), ASYNC or NONE,
+// cosmoport.journal.groupCommitMillis how long a group commit collects appends,
+// cosmoport.journal.segmentBytes the size a segment rolls at.
+// Writers encode the record and queue it, in commit order, for one appender thread that takes
+// everything queued, writes it and flushes once for the whole batch. The queue is bounded by
+// cosmoport.journal.queueCapacity, a full queue makes writers wait. With SYNC or GROUP a write is
+// only acknowledged once its records are durable: ShipService waits for that after its transaction
+// gave the connection back, a write outside any transaction waits right away. A failed append is
+// counted instead of failing a write that already committed
+@Service
+public class ShipJournal implements DisposableBean {
+    public static final String DIRECTORY = System.getProperty("cosmoport.journal.dir");
+    public static final int SEGMENT_BYTES = Integer.getInteger("cosmoport.journal.segmentBytes", 64 * 1024 * 1024);
+    public static final MappedJournal.Durability DURABILITY = MappedJournal.Durability.valueOf(
+            System.getProperty("cosmoport.journal.durability", "GROUP").toUpperCase(Locale.ROOT));
+    public static final long GROUP_COMMIT_MILLIS = Long.getLong("cosmoport.journal.groupCommitMillis", 2);
+    public static final int QUEUE_CAPACITY = Integer.getInteger("cosmoport.journal.queueCapacity", 8192);
+
+    private static final ShipJournalRecord.Type[] TYPES = ShipJournalRecord.Type.values();
+    private static final ShipType[] SHIP_TYPES = ShipType.values();
+
+    // stops the appender once everything queued before it is written
+    private static final Append STOP = new Append(null);
+
+    private final MappedJournal journal;
+    private final boolean acknowledgeDurable;
+    private final BlockingQueue<Append> queue;
+    private final Thread appender;
+    private volatile boolean stopped;
+    // the last record this thread queued and has not waited for yet
+    private final ThreadLocal<Append> unacknowledged = new ThreadLocal<>();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder fullQueueWaits = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+
+    public ShipJournal() throws IOException {
+        this(DIRECTORY == null ? null : new MappedJournal(Paths.get(DIRECTORY), SEGMENT_BYTES, DURABILITY, GROUP_COMMIT_MILLIS),
+                QUEUE_CAPACITY);
+    }
+
+    ShipJournal(MappedJournal journal, int queueCapacity) {
+        this.journal = journal;
+        if (journal == null) {
+            acknowledgeDurable = false;
+            queue = null;
+            appender = null;
+            return;
+        }
+        acknowledgeDurable = journal.getDurability() == MappedJournal.Durability.SYNC
+                || journal.getDurability() == MappedJournal.Durability.GROUP;
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        appender = new Thread(this::appendLoop, "ship-journal");
+        appender.setDaemon(true);
+        appender.start();
+    }
+
+    public boolean isEnabled() {
+        return journal != null;
+    }
+
+    void shipCreated(Ship ship) {
+        if (journal != null) {
+            submit(encode(ShipJournalRecord.Type.CREATED, ship.getId(), ship, 0));
+        }
+    }
+
+    void shipUpdated(Ship ship) {
+        if (journal != null) {
+            submit(encode(ShipJournalRecord.Type.UPDATED, ship.getId(), ship, 0));
+        }
+    }
+
+    void shipDeleted(long id) {
+        if (journal != null) {
+            submit(encode(ShipJournalRecord.Type.DELETED, id, null, 0));
+        }
+    }
+
+    void ratingsRecomputed(int referenceYear) {
+        if (journal != null) {
+            submit(encode(ShipJournalRecord.Type.RATINGS_RECOMPUTED, 0, null, referenceYear));
+        }
+    }
+
+    // the record is encoded on the caller's thread, the entity may change once it returns
+    private void submit(ByteBuffer record) {
+        Append append = new Append(record);
+        if (!enqueue(append)) {
+            failures.increment();
+            return;
+        }
+        if (acknowledgeDurable) {
+            unacknowledged.set(append);
+            awaitAppends();
+        }
+    }
+
+    private boolean enqueue(Append append) {
+        if (stopped) {
+            return false;
+        }
+        try {
+            if (!queue.offer(append)) {
+                fullQueueWaits.increment();
+                queue.put(append);
+            }
+            // the appender may have stopped while this one went in
+            return !(stopped && queue.remove(append));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    // waits until the records this thread queued are durable. Inside a transaction (the after-commit
+    // callbacks of ShipService) that would hold the connection, so the wait is left to whoever
+    // calls this again once the transaction is over
+    void awaitAppends() {
+        Append last = unacknowledged.get();
+        if (last == null || TransactionSynchronizationManager.isActualTransactionActive()) {
+            return;
+        }
+        unacknowledged.remove();
+        try {
+            last.done.get();
+        } catch (ExecutionException e) {
+            // counted by the appender
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // waits until everything queued so far is appended
+    void flush() throws InterruptedException {
+        if (appender == null) {
+            return;
+        }
+        Append marker = new Append(null);
+        if (!enqueue(marker)) {
+            throw new IllegalStateException("the journal appender has stopped");
+        }
+        try {
+            marker.done.get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("the journal appender has stopped", e);
+        }
+    }
+
+    private void appendLoop() {
+        List<Append> batch = new ArrayList<>();
+        boolean stopping = false;
+        while (!stopping) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                break;
+            }
+            queue.drainTo(batch);
+            stopping = batch.remove(STOP);
+            append(batch);
+            batch.clear();
+        }
+        // whatever still comes in is never written, its writers must not wait for it
+        stopped = true;
+        queue.drainTo(batch);
+        for (Append append : batch) {
+            fail(append, new IllegalStateException("the journal is closed"));
+        }
+    }
+
+    // writes the batch, then one flush makes all of it durable
+    private void append(List<Append> batch) {
+        batches.increment();
+        for (Append append : batch) {
+            if (append.record == null) {
+                continue;
+            }
+            try {
+                append.offset = journal.write(append.record);
+            } catch (RuntimeException e) {
+                fail(append, e);
+            }
+        }
+        RuntimeException flushFailure = null;
+        try {
+            journal.flush();
+        } catch (RuntimeException e) {
+            flushFailure = e;
+        }
+        for (Append append : batch) {
+            if (flushFailure != null && append.record != null) {
+                fail(append, flushFailure);
+            } else {
+                append.done.complete(append.offset);
+            }
+        }
+    }
+
+    private void fail(Append append, RuntimeException e) {
+        if (append.done.completeExceptionally(e) && append.record != null) {
+            failures.increment();
+        }
+    }
+
+    // hands every record from the offset on to the consumer and returns the offset to continue from
+    public long replay(long fromOffset, Consumer<ShipJournalRecord> consumer) {
+        Reader reader = reader(fromOffset);
+        for (ShipJournalRecord record = reader.next(); record != null; record = reader.next()) {
+            consumer.accept(record);
+        }
+        return reader.getOffset();
+    }
+
+    public Reader reader(long fromOffset) {
+        if (journal == null) {
+            throw new IllegalStateException("the journal is disabled, set cosmoport.journal.dir");
+        }
+        return new Reader(journal.reader(fromOffset));
+    }
+
+    private static ByteBuffer encode(ShipJournalRecord.Type type, long shipId, Ship ship, int referenceYear) {
+        byte[] name = ship == null ? null : ship.getName().getBytes(StandardCharsets.UTF_8);
+        byte[] planet = ship == null ? null : ship.getPlanet().getBytes(StandardCharsets.UTF_8);
+        int size = 1 + 8 + 8 + (ship == null ? 4 : 2 + name.length + 2 + planet.length + 1 + 8 + 1 + 8 + 4 + 8);
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.put((byte) type.ordinal()).putLong(System.currentTimeMillis()).putLong(shipId);
+        if (ship == null) {
+            buffer.putInt(referenceYear);
+        } else {
+            buffer.putShort((short) name.length).put(name);
+            buffer.putShort((short) planet.length).put(planet);
+            buffer.put((byte) ship.getShipType().ordinal());
+            buffer.putLong(ship.getProdDate().getTime());
+            buffer.put((byte) (Boolean.TRUE.equals(ship.getUsed()) ? 1 : 0));
+            buffer.putDouble(ship.getSpeed());
+            buffer.putInt(ship.getCrewSize());
+            buffer.putDouble(ship.getRating());
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    static ShipJournalRecord decode(MappedJournal.Entry entry) {
+        ByteBuffer buffer = entry.getPayload();
+        ShipJournalRecord.Type type = TYPES[buffer.get()];
+        long timestamp = buffer.getLong();
+        long shipId = buffer.getLong();
+        if (type == ShipJournalRecord.Type.DELETED || type == ShipJournalRecord.Type.RATINGS_RECOMPUTED) {
+            return new ShipJournalRecord(entry.getOffset(), entry.getNextOffset(), type, timestamp, shipId, null, buffer.getInt());
+        }
+        String name = string(buffer);
+        String planet = string(buffer);
+        ShipView ship = new ShipView(shipId, name, planet, SHIP_TYPES[buffer.get()], new Date(buffer.getLong()),
+                buffer.get() == 1, buffer.getDouble(), buffer.getInt(), buffer.getDouble());
+        return new ShipJournalRecord(entry.getOffset(), entry.getNextOffset(), type, timestamp, shipId, ship, 0);
+    }
+
+    private static String string(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getShort()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", journal != null);
+        if (journal == null) {
+            return stats;
+        }
+        stats.put("pendingAppends", queue.size());
+        stats.put("queueCapacity", queue.size() + queue.remainingCapacity());
+        stats.put("fullQueueWaits", fullQueueWaits.sum());
+        stats.put("appendFailures", failures.sum());
+        stats.put("appendBatches", batches.sum());
+        return journal.snapshot(stats);
+    }
+
+    // records already queued still get written before the journal closes
+    @Override
+    public void destroy() throws InterruptedException {
+        if (journal != null) {
+            try {
+                if (!stopped && queue.offer(STOP, 10, TimeUnit.SECONDS)) {
+                    appender.join(TimeUnit.SECONDS.toMillis(10));
+                }
+            } finally {
+                stopped = true;
+                appender.interrupt();
+                journal.close();
+            }
+        }
+    }
+
+    private static final class Append {
+        final ByteBuffer record;
+        final CompletableFuture<Long> done = new CompletableFuture<>();
+        // written by the appender before done completes
+        long offset;
+
+        Append(ByteBuffer record) {
+            this.record = record;
+        }
+    }
+
+    public static final class Reader {
+        private final MappedJournal.Reader reader;
+
+        private Reader(MappedJournal.Reader reader) {
+            this.reader = reader;
+        }
+
+        public long getOffset() {
+            return reader.getOffset();
+        }
+
+        // the next record, or null once everything committed so far has been read
+        public ShipJournalRecord next() {
+            MappedJournal.Entry entry = reader.next();
+            return entry == null ? null : decode(entry);
+        }
+
+        // tails the journal: waits up to the timeout for the next record
+        public ShipJournalRecord poll(long timeout, TimeUnit unit) throws InterruptedException {
+            MappedJournal.Entry entry = reader.poll(timeout, unit);
+            return entry == null ? null : decode(entry);
+        }
+    }
+}
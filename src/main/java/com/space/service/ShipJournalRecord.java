@@ -0,0 +1,60 @@
+package com.space.service;
+
+import com.space.model.ShipView;
+
+// one committed mutation read back from the journal, with the offsets to resume from
+public class ShipJournalRecord {
+    public enum Type {
+        CREATED, UPDATED, DELETED, RATINGS_RECOMPUTED
+    }
+
+    private final long offset;
+    private final long nextOffset;
+    private final Type type;
+    private final long timestamp;
+    private final long shipId;
+    private final ShipView ship;
+    private final int referenceYear;
+
+    ShipJournalRecord(long offset, long nextOffset, Type type, long timestamp, long shipId, ShipView ship, int referenceYear) {
+        this.offset = offset;
+        this.nextOffset = nextOffset;
+        this.type = type;
+        this.timestamp = timestamp;
+        this.shipId = shipId;
+        this.ship = ship;
+        this.referenceYear = referenceYear;
+    }
+
+    public long getOffset() {
+        return offset;
+    }
+
+    public long getNextOffset() {
+        return nextOffset;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    // commit time in epoch milliseconds
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    // 0 for RATINGS_RECOMPUTED
+    public long getShipId() {
+        return shipId;
+    }
+
+    // the full row after the change, set for CREATED and UPDATED
+    public ShipView getShip() {
+        return ship;
+    }
+
+    // set for RATINGS_RECOMPUTED, replaying it means recomputing every rating with this year
+    public int getReferenceYear() {
+        return referenceYear;
+    }
+}
@@ -0,0 +1,330 @@
+package com.space.service;
+
+import com.space.controller.ShipOrder;
+import com.space.model.Ship;
+import com.space.model.ShipType;
+import com.space.model.ShipView;
+import com.space.repository.ShipRepository;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// column-oriented mirror of the ship table, enabled with -Dcosmoport.replica=true
+@Service
+public class ShipReplica implements InitializingBean {
+    private static final boolean ENABLED = Boolean.getBoolean("cosmoport.replica");
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final ShipType[] SHIP_TYPES = ShipType.values();
+
+    @Autowired
+    ShipRepository repository;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile boolean enabled = ENABLED;
+
+    private int size;
+    private long[] ids = new long[INITIAL_CAPACITY];
+    private long[] prodDates = new long[INITIAL_CAPACITY];
+    private double[] speeds = new double[INITIAL_CAPACITY];
+    private double[] ratings = new double[INITIAL_CAPACITY];
+    private int[] crewSizes = new int[INITIAL_CAPACITY];
+    private boolean[] used = new boolean[INITIAL_CAPACITY];
+    private byte[] shipTypes = new byte[INITIAL_CAPACITY];
+    private int[] planets = new int[INITIAL_CAPACITY];
+    private String[] names = new String[INITIAL_CAPACITY];
+    private String[] namesLowerCase = new String[INITIAL_CAPACITY];
+
+    private final Map<Long, Integer> rowById = new HashMap<>();
+    private final List<String> planetDictionary = new ArrayList<>();
+    private final List<String> planetDictionaryLowerCase = new ArrayList<>();
+    private final Map<String, Integer> planetCodes = new HashMap<>();
+
+    @Override
+    public void afterPropertiesSet() {
+        if (ENABLED) {
+            reload();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // lets a test switch the replica on in a shared context; it starts from a fresh copy of the table
+    void setEnabled(boolean enabled) {
+        if (enabled) {
+            reload();
+        }
+        this.enabled = enabled;
+    }
+
+    public void reload() {
+        lock.writeLock().lock();
+        try {
+            size = 0;
+            rowById.clear();
+            for (Ship ship : repository.findAll()) {
+                write(ship);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void put(Ship ship) {
+        lock.writeLock().lock();
+        try {
+            write(ship);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long id) {
+        lock.writeLock().lock();
+        try {
+            Integer row = rowById.remove(id);
+            if (row == null) {
+                return;
+            }
+            int last = --size;
+            if (row != last) {
+                moveRow(last, row);
+                rowById.put(ids[row], row);
+            }
+            names[last] = null;
+            namesLowerCase[last] = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public List<ShipView> find(String name, String planet, ShipType shipType, Boolean isUsed,
+                               Long after, Long before,
+                               Integer minCrewSize, Integer maxCrewSize,
+                               Double minSpeed, Double maxSpeed,
+                               Double minRating, Double maxRating,
+                               ShipOrder order, int pageNumber, int pageSize) {
+        lock.readLock().lock();
+        try {
+            int[] rows = new int[size];
+            int matched = match(new Filter(name, planet, shipType, isUsed, after, before, minCrewSize, maxCrewSize, minSpeed, maxSpeed, minRating, maxRating), rows);
+            sort(rows, 0, matched - 1, order);
+
+            long from = (long) pageNumber * pageSize;
+            int to = (int) Math.min(from + pageSize, matched);
+            List<ShipView> page = new ArrayList<>(Math.max(0, to - (int) Math.min(from, matched)));
+            for (int i = (int) Math.min(from, matched); i < to; i++) {
+                page.add(view(rows[i]));
+            }
+            return page;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long count(String name, String planet, ShipType shipType, Boolean isUsed,
+                      Long after, Long before,
+                      Integer minCrewSize, Integer maxCrewSize,
+                      Double minSpeed, Double maxSpeed,
+                      Double minRating, Double maxRating) {
+        lock.readLock().lock();
+        try {
+            return match(new Filter(name, planet, shipType, isUsed, after, before, minCrewSize, maxCrewSize, minSpeed, maxSpeed, minRating, maxRating), null);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private int match(Filter filter, int[] rows) {
+        int matched = 0;
+        for (int row = 0; row < size; row++) {
+            if (filter.shipType >= 0 && shipTypes[row] != filter.shipType) continue;
+            if (filter.used >= 0 && used[row] != (filter.used == 1)) continue;
+            if (prodDates[row] < filter.minProdDate || prodDates[row] > filter.maxProdDate) continue;
+            if (crewSizes[row] < filter.minCrewSize || crewSizes[row] > filter.maxCrewSize) continue;
+            if (!(speeds[row] >= filter.minSpeed && speeds[row] <= filter.maxSpeed)) continue;
+            if (!(ratings[row] >= filter.minRating && ratings[row] <= filter.maxRating)) continue;
+            if (filter.planets != null && (planets[row] >= filter.planets.length || !filter.planets[planets[row]])) continue;
+            if (filter.name != null && !namesLowerCase[row].contains(filter.name)) continue;
+
+            if (rows != null) {
+                rows[matched] = row;
+            }
+            matched++;
+        }
+        return matched;
+    }
+
+    private void sort(int[] rows, int low, int high, ShipOrder order) {
+        while (low < high) {
+            int i = low;
+            int j = high;
+            int pivot = rows[(low + high) >>> 1];
+            while (i <= j) {
+                while (compare(rows[i], pivot, order) < 0) i++;
+                while (compare(rows[j], pivot, order) > 0) j--;
+                if (i <= j) {
+                    int swap = rows[i];
+                    rows[i++] = rows[j];
+                    rows[j--] = swap;
+                }
+            }
+            // recurse into the smaller half to bound the stack depth
+            if (j - low < high - i) {
+                sort(rows, low, j, order);
+                low = i;
+            } else {
+                sort(rows, i, high, order);
+                high = j;
+            }
+        }
+    }
+
+    private int compare(int a, int b, ShipOrder order) {
+        int result;
+        switch (order) {
+            case SPEED:
+                result = Double.compare(speeds[a], speeds[b]);
+                break;
+            case RATING:
+                result = Double.compare(ratings[a], ratings[b]);
+                break;
+            case DATE:
+                result = Long.compare(prodDates[a], prodDates[b]);
+                break;
+            default:
+                result = 0;
+        }
+        return result != 0 ? result : Long.compare(ids[a], ids[b]);
+    }
+
+    private ShipView view(int row) {
+        return new ShipView(ids[row], names[row], planetDictionary.get(planets[row]), SHIP_TYPES[shipTypes[row]],
+                new Date(prodDates[row]), used[row], speeds[row], crewSizes[row], ratings[row]);
+    }
+
+    private void write(Ship ship) {
+        Integer row = rowById.get(ship.getId());
+        if (row == null) {
+            ensureCapacity(size + 1);
+            row = size++;
+            rowById.put(ship.getId(), row);
+        }
+        ids[row] = ship.getId();
+        names[row] = ship.getName();
+        namesLowerCase[row] = ship.getName().toLowerCase(Locale.ROOT);
+        planets[row] = planetCode(ship.getPlanet());
+        shipTypes[row] = (byte) ship.getShipType().ordinal();
+        prodDates[row] = startOfDay(ship.getProdDate());
+        used[row] = Boolean.TRUE.equals(ship.getUsed());
+        speeds[row] = ship.getSpeed();
+        crewSizes[row] = ship.getCrewSize();
+        ratings[row] = ship.getRating();
+    }
+
+    // prodDate is a DATE column, so a freshly saved entity still carries the time of day the database drops
+    static long startOfDay(Date date) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTime(date);
+        calendar.set(Calendar.HOUR_OF_DAY, 0);
+        calendar.set(Calendar.MINUTE, 0);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+        return calendar.getTimeInMillis();
+    }
+
+    private void moveRow(int from, int to) {
+        ids[to] = ids[from];
+        names[to] = names[from];
+        namesLowerCase[to] = namesLowerCase[from];
+        planets[to] = planets[from];
+        shipTypes[to] = shipTypes[from];
+        prodDates[to] = prodDates[from];
+        used[to] = used[from];
+        speeds[to] = speeds[from];
+        crewSizes[to] = crewSizes[from];
+        ratings[to] = ratings[from];
+    }
+
+    private int planetCode(String planet) {
+        Integer code = planetCodes.get(planet);
+        if (code == null) {
+            code = planetDictionary.size();
+            planetDictionary.add(planet);
+            planetDictionaryLowerCase.add(planet.toLowerCase(Locale.ROOT));
+            planetCodes.put(planet, code);
+        }
+        return code;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= ids.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, ids.length * 2);
+        ids = Arrays.copyOf(ids, newCapacity);
+        names = Arrays.copyOf(names, newCapacity);
+        namesLowerCase = Arrays.copyOf(namesLowerCase, newCapacity);
+        planets = Arrays.copyOf(planets, newCapacity);
+        shipTypes = Arrays.copyOf(shipTypes, newCapacity);
+        prodDates = Arrays.copyOf(prodDates, newCapacity);
+        used = Arrays.copyOf(used, newCapacity);
+        speeds = Arrays.copyOf(speeds, newCapacity);
+        crewSizes = Arrays.copyOf(crewSizes, newCapacity);
+        ratings = Arrays.copyOf(ratings, newCapacity);
+    }
+
+    private class Filter {
+        final String name;
+        final boolean[] planets;
+        final int shipType;
+        final int used;
+        final long minProdDate;
+        final long maxProdDate;
+        final int minCrewSize;
+        final int maxCrewSize;
+        final double minSpeed;
+        final double maxSpeed;
+        final double minRating;
+        final double maxRating;
+
+        Filter(String name, String planet, ShipType shipType, Boolean isUsed,
+               Long after, Long before,
+               Integer minCrewSize, Integer maxCrewSize,
+               Double minSpeed, Double maxSpeed,
+               Double minRating, Double maxRating) {
+            // LIKE on the default MySQL collation is case-insensitive
+            this.name = name == null ? null : name.toLowerCase(Locale.ROOT);
+            this.planets = planet == null ? null : matchPlanets(planet.toLowerCase(Locale.ROOT));
+            this.shipType = shipType == null ? -1 : shipType.ordinal();
+            this.used = isUsed == null ? -1 : (isUsed ? 1 : 0);
+            this.minProdDate = after == null ? Long.MIN_VALUE : ShipService.convertDateToYearBeggining(after).getTime();
+            this.maxProdDate = before == null ? Long.MAX_VALUE : ShipService.convertDateToYearBeggining(before).getTime();
+            this.minCrewSize = minCrewSize == null ? Integer.MIN_VALUE : minCrewSize;
+            this.maxCrewSize = maxCrewSize == null ? Integer.MAX_VALUE : maxCrewSize;
+            this.minSpeed = minSpeed == null ? Double.NEGATIVE_INFINITY : minSpeed;
+            this.maxSpeed = maxSpeed == null ? Double.POSITIVE_INFINITY : maxSpeed;
+            this.minRating = minRating == null ? Double.NEGATIVE_INFINITY : minRating;
+            this.maxRating = maxRating == null ? Double.POSITIVE_INFINITY : maxRating;
+        }
+
+        private boolean[] matchPlanets(String planet) {
+            boolean[] matches = new boolean[planetDictionaryLowerCase.size()];
+            for (int code = 0; code < matches.length; code++) {
+                matches[code] = planetDictionaryLowerCase.get(code).contains(planet);
+            }
+            return matches;
+        }
+    }
+}
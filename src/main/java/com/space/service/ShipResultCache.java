@@ -0,0 +1,214 @@
+package com.space.service;
+
+import com.space.config.ReadWriteRoutingDataSource;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+// LRU/TTL cache of search results, enabled with -Dcosmoport.resultCache=true. Every entry
+// remembers the data version it was computed under and is only served while that is still the
+// current version; writers bump the version once their change is committed, so nothing computed
+// before a write is returned after it.
+// With read replicas (see ReadWriteRoutingDataSource) a load may read a replica that lacks the last
+// writes, so results are only stored, and data tags only handed out, for a version that has been
+// current for cosmoport.readReplicas.stickyMillis, the time replicas are assumed to take to catch up
+@Service
+public class ShipResultCache {
+    private static final boolean ENABLED = Boolean.getBoolean("cosmoport.resultCache");
+    private static final int MAX_ENTRIES = Integer.getInteger("cosmoport.resultCache.maxEntries", 1000);
+    private static final long MAX_BYTES = Long.getLong("cosmoport.resultCache.maxBytes", 32L << 20);
+    private static final long TTL_MILLIS = Long.getLong("cosmoport.resultCache.ttlMillis", 60_000L);
+    static final long REPLICA_LAG_MILLIS = ReadWriteRoutingDataSource.ENABLED ? ReadWriteRoutingDataSource.STICKY_MILLIS : 0;
+
+    private final boolean enabled;
+    private final int maxEntries;
+    private final long maxBytes;
+    private final long ttlNanos;
+    private final long replicaLagMillis;
+
+    private final AtomicLong version = new AtomicLong();
+    // set before the version moves, so whoever sees the new version sees this time as well
+    private volatile long changedAtMillis;
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder expired = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public ShipResultCache() {
+        this(ENABLED, MAX_ENTRIES, MAX_BYTES, TTL_MILLIS, REPLICA_LAG_MILLIS);
+    }
+
+    ShipResultCache(boolean enabled, int maxEntries, long maxBytes, long ttlMillis, long replicaLagMillis) {
+        this.enabled = enabled;
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        this.replicaLagMillis = replicaLagMillis;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public static Key key(String kind, Object... parameters) {
+        return new Key(kind, parameters);
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T get(Key key, Supplier<T> loader, ToLongFunction<T> sizeInBytes) {
+        if (!enabled) {
+            return loader.get();
+        }
+        // read before loading: if a write lands meanwhile, the result is stored under a version
+        // that is already outdated and will never be served
+        long loadVersion = version.get();
+        boolean settled = settled(System.currentTimeMillis());
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                if (entry.version == loadVersion && System.nanoTime() - entry.createdNanos < ttlNanos) {
+                    hits.increment();
+                    return (T) entry.value;
+                }
+                remove(key, entry);
+                expired.increment();
+            }
+        }
+
+        misses.increment();
+        T value = loader.get();
+        long size = sizeInBytes.applyAsLong(value);
+        if (size > maxBytes || !settled) {
+            return value;
+        }
+        synchronized (this) {
+            if (loadVersion == version.get()) {
+                Entry previous = entries.put(key, new Entry(value, loadVersion, size));
+                bytes += size - (previous == null ? 0 : previous.size);
+                evictOverflow();
+            }
+        }
+        return value;
+    }
+
+    // whether get() would be a hit right now, without counting one
+    public boolean contains(Key key) {
+        if (!enabled) {
+            return false;
+        }
+        long currentVersion = version.get();
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            return entry != null && entry.version == currentVersion && System.nanoTime() - entry.createdNanos < ttlNanos;
+        }
+    }
+
+    // called by every write path after its transaction has committed
+    public void invalidate() {
+        changedAtMillis = System.currentTimeMillis();
+        version.incrementAndGet();
+        if (enabled) {
+            synchronized (this) {
+                entries.clear();
+                bytes = 0;
+            }
+        }
+    }
+
+    public long version() {
+        return version.get();
+    }
+
+    // the current version once replicas can be taken to have it too, -1 until then
+    public long settledVersion() {
+        long current = version.get();
+        return settled(System.currentTimeMillis()) ? current : -1;
+    }
+
+    private boolean settled(long now) {
+        return replicaLagMillis == 0 || now - changedAtMillis >= replicaLagMillis;
+    }
+
+    private void evictOverflow() {
+        Iterator<Map.Entry<Key, Entry>> eldest = entries.entrySet().iterator();
+        while ((entries.size() > maxEntries || bytes > maxBytes) && eldest.hasNext()) {
+            bytes -= eldest.next().getValue().size;
+            eldest.remove();
+            evictions.increment();
+        }
+    }
+
+    private void remove(Key key, Entry entry) {
+        entries.remove(key);
+        bytes -= entry.size;
+    }
+
+    public Map<String, Object> snapshot() {
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("version", version.get());
+        synchronized (this) {
+            stats.put("entries", entries.size());
+            stats.put("bytes", bytes);
+        }
+        stats.put("maxEntries", maxEntries);
+        stats.put("maxBytes", maxBytes);
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("hitRatio", hitCount + missCount == 0 ? 0.0 : (double) hitCount / (hitCount + missCount));
+        stats.put("expired", expired.sum());
+        stats.put("evictions", evictions.sum());
+        return stats;
+    }
+
+    public static final class Key {
+        private final String kind;
+        private final Object[] parameters;
+        private final int hash;
+
+        private Key(String kind, Object[] parameters) {
+            this.kind = kind;
+            this.parameters = parameters;
+            this.hash = 31 * kind.hashCode() + Arrays.hashCode(parameters);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return hash == other.hash && kind.equals(other.kind) && Arrays.equals(parameters, other.parameters);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private static final class Entry {
+        private final Object value;
+        private final long version;
+        private final long size;
+        private final long createdNanos = System.nanoTime();
+
+        Entry(Object value, long version, long size) {
+            this.value = value;
+            this.version = version;
+            this.size = size;
+        }
+    }
+}
@@ -2,7 +2,10 @@ package com.space.service;
 
 import com.space.controller.ShipOrder;
 import com.space.model.Ship;
+import com.space.model.ShipRating;
 import com.space.model.ShipType;
+import com.space.model.ShipView;
+import com.space.repository.ShipFilter;
 import com.space.repository.ShipRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
@@ -10,134 +13,277 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.repository.support.PageableExecutionUtils;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Path;
 import javax.persistence.criteria.Predicate;
 import javax.persistence.criteria.Root;
 import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 import java.util.stream.Stream;
 
 @Service
 public class ShipService {
     @Autowired
     ShipRepository repository;
+    @Autowired
+    ShipCache cache;
+    @Autowired
+    ShipReplica replica;
+    @Autowired
+    ShipTextIndex textIndex;
+    @Autowired
+    ShipValidator validator;
+    @Autowired
+    ShipResultCache resultCache;
+    @Autowired
+    ShipVersions versions;
+    @Autowired
+    ShipChangeFeed feed;
+    @Autowired
+    ShipJournal journal;
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    private static final long COUNT_SIZE = 48;
 
     public boolean dataIsValid(Ship ship, boolean notNullFields) {
-        if (ship == null) {
-            return false;
-        }
+        return validator.isValid(ship, notNullFields);
+    }
 
-        if (notNullFields) {
-            if (Stream.of(ship.getName(), ship.getPlanet(), ship.getShipType(), ship.getProdDate(), ship.getSpeed(), ship.getCrewSize())
-                    .anyMatch(Objects::isNull)) {
-                return false;
-            }
+    @Transactional(readOnly = true)
+    public Page<Ship> findByCriteria(String name, String planet, ShipType shipType, Boolean isUsed,
+                                     Long after, Long before,
+                                     Integer minCrewSize, Integer maxCrewSize,
+                                     Double minSpeed, Double maxSpeed,
+                                     Double minRating, Double maxRating,
+                                     ShipOrder order, Integer pageNumber, Integer pageSize) {
+
+        Pageable pageable;
+        if (pageNumber != null && pageSize != null && order != null) {
+            pageable = PageRequest.of(pageNumber, pageSize, sortWithTieBreak(order));
+        } else {
+            pageable = Pageable.unpaged();
         }
 
+        return repository.findAll(buildSpecification(name, planet, shipType, isUsed, after, before, minCrewSize, maxCrewSize, minSpeed, maxSpeed, minRating, maxRating),
+                pageable);
+    }
 
-        //--
-        if (ship.getName() != null && !stringIsValid(ship.getName())) {
-            return false;
-        }
-        if (ship.getPlanet() != null && !stringIsValid(ship.getPlanet())) {
-            return false;
-        }
+    public Page<Ship> findByCriteria(String name, String planet, ShipType shipType, Boolean isUsed,
+                                     Long after, Long before,
+                                     Integer minCrewSize, Integer maxCrewSize,
+                                     Double minSpeed, Double maxSpeed,
+                                     Double minRating, Double maxRating) {
+        return findByCriteria(name, planet, shipType, isUsed, after, before, minCrewSize, maxCrewSize, minSpeed, maxSpeed, minRating, maxRating,
+                ShipOrder.ID, null, null);
 
+    }
 
-        if (ship.getProdDate() != null) {
-            Calendar calendar = GregorianCalendar.getInstance();
-            calendar.setTime(ship.getProdDate());
-            if (!productionDateIsValid(ship.getProdDate()))
-                return false;
-        }
+    // the cached search paths open their read-only transaction inside the loader, so a result cache
+    // hit never borrows a connection
+    public List<ShipView> findViewsByCriteria(String name, String planet, ShipType shipType, Boolean isUsed,
+                                              Long after, Long before,
+                                              Integer minCrewSize, Integer maxCrewSize,
+                                              Double minSpeed, Double maxSpeed,
+                                              Double minRating, Double maxRating,
+                                              ShipOrder order, int pageNumber, int pageSize) {
+        ShipResultCache.Key key = viewsKey(name, planet, shipType, isUsed, after, before, minCrewSize, maxCrewSize, minSpeed, maxSpeed, minRating, maxRating, order, pageNumber, pageSize);
+        return resultCache.get(key, () -> {
+            if (replica.isEnabled()) {
+                return Collections.unmodifiableList(replica.find(name, planet, shipType, isUsed, after, before, minCrewSize, maxCrewSize, minSpeed, maxSpeed, minRating, maxRating, order, pageNumber, pageSize));
+            }
+            Pageable pageable = PageRequest.of(pageNumber, pageSize, sortWithTieBreak(order));
+            return readOnly(() -> Collections.unmodifiableList(repository.findViews(buildFilter(name, planet, shipType, isUsed, after, before, minCrewSize, maxCrewSize, minSpeed, maxSpeed, minRating, maxRating),
+                    pageable.getSort(), pageable.getOffset(), pageable.getPageSize())));
+        }, ShipService::estimateSize);
+    }
 
-        if (ship.getSpeed() != null && !speedIsValid(ship.getSpeed())) {
-            return false;
+    public Page<ShipView> searchViews(String name, String planet, ShipType shipType, Boolean isUsed,
+                                      Long after, Long before,
+                                      Integer minCrewSize, Integer maxCrewSize,
+                                      Double minSpeed, Double maxSpeed,
+                                      Double minRating, Double maxRating,
+                                      ShipOrder order, int pageNumber, int pageSize) {
+        Pageable pageable = PageRequest.of(pageNumber, pageSize, sortWithTieBreak(order));
+        Supplier<Page<ShipView>> search = () -> {
+            List<ShipView> content = findViewsByCriteria(name, planet, shipType, isUsed, after, before, minCrewSize, maxCrewSize, minSpeed, maxSpeed, minRating, maxRating, order, pageNumber, pageSize);
+            return PageableExecutionUtils.getPage(content, pageable,
+                    () -> countByCriteria(name, planet, shipType, isUsed, after, before, minCrewSize, maxCrewSize, minSpeed, maxSpeed, minRating, maxRating));
+        };
+        // page and total share one transaction, and with it one snapshot, unless both are cached or
+        // answered by the in-memory replica
+        if (replica.isEnabled() || resultCache.contains(viewsKey(name, planet, shipType, isUsed, after, before, minCrewSize, maxCrewSize, minSpeed, maxSpeed, minRating, maxRating, order, pageNumber, pageSize))
+                && resultCache.contains(countKey(name, planet, shipType, isUsed, after, before, minCrewSize, maxCrewSize, minSpeed, maxSpeed, minRating, maxRating))) {
+            return search.get();
         }
-        if (ship.getCrewSize() != null && !crewSizeIsValid(ship.getCrewSize())) {
-            return false;
+        return readOnly(search);
+    }
+
+    @Transactional(readOnly = true)
+    public List<ShipView> findByCursor(String name, String planet, ShipType shipType, Boolean isUsed,
+                                       Long after, Long before,
+                                       Integer minCrewSize, Integer maxCrewSize,
+                                       Double minSpeed, Double maxSpeed,
+                                       Double minRating, Double maxRating,
+                                       ShipOrder order, ShipCursor cursor, int pageSize) {
+        Specification<Ship> specification = buildSpecification(name, planet, shipType, isUsed, after, before, minCrewSize, maxCrewSize, minSpeed, maxSpeed, minRating, maxRating);
+        if (cursor != null) {
+            specification = specification.and(seekAfter(cursor));
         }
+        return repository.findViews(specification, sortWithTieBreak(order), 0, pageSize);
+    }
 
+    @Transactional(readOnly = true)
+    public long exportViews(String name, String planet, ShipType shipType, Boolean isUsed,
+                            Long after, Long before,
+                            Integer minCrewSize, Integer maxCrewSize,
+                            Double minSpeed, Double maxSpeed,
+                            Double minRating, Double maxRating,
+                            ShipOrder order, Consumer<ShipView> sink) {
+        Specification<Ship> specification = buildSpecification(name, planet, shipType, isUsed, after, before, minCrewSize, maxCrewSize, minSpeed, maxSpeed, minRating, maxRating);
+        long exported = 0;
+        try (Stream<ShipView> views = repository.streamViews(specification, sortWithTieBreak(order))) {
+            Iterator<ShipView> iterator = views.iterator();
+            while (iterator.hasNext()) {
+                sink.accept(iterator.next());
+                exported++;
+            }
+        }
+        return exported;
+    }
 
-        //---
-//        if ((notNullFields && !textHasContent(ship.getName()))
-//                || (notNullFields && !textHasContent(ship.getPlanet()))
-//                || (notNullFields && ship.getName().length() > 50)
-//                || (notNullFields && ship.getPlanet().length() > 50)
-//                || (ship.getProdDate()!=null && (calendar.get(Calendar.YEAR) < 2800 || calendar.get(Calendar.YEAR) > 3019))
-//                || (ship.getSpeed()!=null && (ship.getSpeed() < 0.01 || ship.getSpeed() > 0.99))
-//                || (ship.getCrewSize()!=null && (ship.getCrewSize() < 1 || ship.getCrewSize() > 9999))) {
-//            return false;
+    public long countByCriteria(String name, String planet, ShipType shipType, Boolean isUsed,
+                                Long after, Long before,
+                                Integer minCrewSize, Integer maxCrewSize,
+                                Double minSpeed, Double maxSpeed,
+                                Double minRating, Double maxRating) {
+        ShipResultCache.Key key = countKey(name, planet, shipType, isUsed, after, before, minCrewSize, maxCrewSize, minSpeed, maxSpeed, minRating, maxRating);
+        return resultCache.get(key, () -> {
+            if (replica.isEnabled()) {
+                return replica.count(name, planet, shipType, isUsed, after, before, minCrewSize, maxCrewSize, minSpeed, maxSpeed, minRating, maxRating);
+            }
+            return readOnly(() -> repository.countMatching(buildFilter(name, planet, shipType, isUsed, after, before, minCrewSize, maxCrewSize, minSpeed, maxSpeed, minRating, maxRating)));
+        }, count -> COUNT_SIZE);
+    }
 
+    // joins the caller's transaction if there is one
+    private <T> T readOnly(Supplier<T> query) {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setReadOnly(true);
+        return transaction.execute(status -> query.get());
+    }
 
-        return true;
+    private static ShipResultCache.Key viewsKey(String name, String planet, ShipType shipType, Boolean isUsed,
+                                                Long after, Long before,
+                                                Integer minCrewSize, Integer maxCrewSize,
+                                                Double minSpeed, Double maxSpeed,
+                                                Double minRating, Double maxRating,
+                                                ShipOrder order, int pageNumber, int pageSize) {
+        return ShipResultCache.key("views", name, planet, shipType, isUsed, yearStart(after), yearStart(before),
+                minCrewSize, maxCrewSize, minSpeed, maxSpeed, minRating, maxRating, order, pageNumber, pageSize);
     }
 
-    public boolean stringIsValid(String text) {
-        String EMPTY_STRING = "";
-        return (text != null) && (!text.trim().equals(EMPTY_STRING)) && (text.length() <= 50);
+    private static ShipResultCache.Key countKey(String name, String planet, ShipType shipType, Boolean isUsed,
+                                                Long after, Long before,
+                                                Integer minCrewSize, Integer maxCrewSize,
+                                                Double minSpeed, Double maxSpeed,
+                                                Double minRating, Double maxRating) {
+        return ShipResultCache.key("count", name, planet, shipType, isUsed, yearStart(after), yearStart(before),
+                minCrewSize, maxCrewSize, minSpeed, maxSpeed, minRating, maxRating);
     }
 
-    public boolean productionDateIsValid(Date productDate) {
-        int minYear = 2800;
-        int maxYear = 3019;
-        Calendar calendar = GregorianCalendar.getInstance();
+    private static Long yearStart(Long date) {
+        return date == null ? null : convertDateToYearBeggining(date).getTime();
+    }
 
-        if (productDate == null) {
-            return false;
+    // rough heap footprint of a cached page: the view with its boxed fields plus both strings
+    private static long estimateSize(List<ShipView> views) {
+        long size = 64;
+        for (ShipView view : views) {
+            size += 200 + 2L * (length(view.getName()) + length(view.getPlanet()));
         }
-
-        calendar.setTime(productDate);
-        return calendar.get(Calendar.YEAR) >= minYear && calendar.get(Calendar.YEAR) <= maxYear;
-
-
+        return size;
     }
 
-    public boolean speedIsValid(Double speed) {
-        Double minSpeed = 0.01;
-        Double maxSpeed = 0.99;
-        if (speed == null)
-            return false;
-        return speed >= minSpeed && speed <= maxSpeed;
+    private static int length(String text) {
+        return text == null ? 0 : text.length();
     }
 
-    public boolean crewSizeIsValid(Integer crewSize) {
-        int minCrewSize = 1;
-        int maxCrewSize = 9999;
+    public Map<String, Object> queryPlanStats() {
+        return repository.queryPlanStats();
+    }
 
-        if (crewSize == null)
-            return false;
+    private Sort sortWithTieBreak(ShipOrder order) {
+        Sort sort = Sort.by(order.getFieldName());
+        return order == ShipOrder.ID ? sort : sort.and(Sort.by(ShipOrder.ID.getFieldName()));
+    }
 
-        return crewSize >= minCrewSize && crewSize <= maxCrewSize;
+    @SuppressWarnings("unchecked")
+    private Specification<Ship> seekAfter(ShipCursor cursor) {
+        return (root, query, criteriaBuilder) -> {
+            Path<Long> id = root.get(ShipOrder.ID.getFieldName());
+            if (cursor.getOrder() == ShipOrder.ID) {
+                return criteriaBuilder.greaterThan(id, cursor.getId());
+            }
+            Path<Comparable<Object>> key = root.get(cursor.getOrder().getFieldName());
+            Comparable<Object> value = (Comparable<Object>) cursor.getKey();
+            return criteriaBuilder.or(criteriaBuilder.greaterThan(key, value),
+                    criteriaBuilder.and(criteriaBuilder.equal(key, value), criteriaBuilder.greaterThan(id, cursor.getId())));
+        };
     }
 
+    private Predicate idIn(Root<Ship> root, CriteriaBuilder criteriaBuilder, Set<Long> ids) {
+        if (ids.isEmpty()) {
+            return criteriaBuilder.disjunction();
+        }
+        return root.get(ShipOrder.ID.getFieldName()).in(ids);
+    }
 
-    public Page<Ship> findByCriteria(String name, String planet, ShipType shipType, Boolean isUsed,
-                                     Long after, Long before,
-                                     Integer minCrewSize, Integer maxCrewSize,
-                                     Double minSpeed, Double maxSpeed,
-                                     Double minRating, Double maxRating,
-                                     ShipOrder order, Integer pageNumber, Integer pageSize) {
+    private ShipFilter buildFilter(String name, String planet, ShipType shipType, Boolean isUsed,
+                                   Long after, Long before,
+                                   Integer minCrewSize, Integer maxCrewSize,
+                                   Double minSpeed, Double maxSpeed,
+                                   Double minRating, Double maxRating) {
+        return new ShipFilter(name, textIndex.isEnabled() ? textIndex.findByName(name) : null,
+                planet, textIndex.isEnabled() ? textIndex.findByPlanet(planet) : null,
+                shipType, isUsed,
+                after == null ? null : convertDateToYearBeggining(after),
+                before == null ? null : convertDateToYearBeggining(before),
+                minCrewSize, maxCrewSize, minSpeed, maxSpeed, minRating, maxRating);
+    }
 
-        Pageable pageable;
-        if (pageNumber != null && pageSize != null && order != null) {
-            pageable = PageRequest.of(pageNumber, pageSize, Sort.by(order.getFieldName()));
-        } else {
-            pageable = Pageable.unpaged();
-        }
+    private Specification<Ship> buildSpecification(String name, String planet, ShipType shipType, Boolean isUsed,
+                                                   Long after, Long before,
+                                                   Integer minCrewSize, Integer maxCrewSize,
+                                                   Double minSpeed, Double maxSpeed,
+                                                   Double minRating, Double maxRating) {
+        Set<Long> nameIds = textIndex.isEnabled() ? textIndex.findByName(name) : null;
+        Set<Long> planetIds = textIndex.isEnabled() ? textIndex.findByPlanet(planet) : null;
 
-        return repository.findAll(new Specification<Ship>() {
+        return new Specification<Ship>() {
             @Override
             public Predicate toPredicate(Root<Ship> root, CriteriaQuery<?> query, CriteriaBuilder criteriaBuilder) {
                 List<Predicate> predicates = new ArrayList<>();
                 //like
-                if (name != null) {
-                    predicates.add(criteriaBuilder.and(criteriaBuilder.like(root.get("name"), "%" + name + "%")));
+                if (nameIds != null) {
+                    predicates.add(idIn(root, criteriaBuilder, nameIds));
+                } else if (name != null) {
+                    predicates.add(criteriaBuilder.and(criteriaBuilder.like(root.get("name"), ShipFilter.containsPattern(name), ShipFilter.ESCAPE)));
                 }
-                if (planet != null) {
-                    predicates.add(criteriaBuilder.and(criteriaBuilder.like(root.get("planet"), "%" + planet + "%")));
+                if (planetIds != null) {
+                    predicates.add(idIn(root, criteriaBuilder, planetIds));
+                } else if (planet != null) {
+                    predicates.add(criteriaBuilder.and(criteriaBuilder.like(root.get("planet"), ShipFilter.containsPattern(planet), ShipFilter.ESCAPE)));
                 }
                 if (shipType != null) {
                     predicates.add(criteriaBuilder.and(criteriaBuilder.equal(root.get("shipType"), shipType)));
@@ -173,96 +319,236 @@ public class ShipService {
 
                 return criteriaBuilder.and(predicates.toArray(new Predicate[predicates.size()]));
             }
-        }, pageable);
+        };
     }
 
-    public Page<Ship> findByCriteria(String name, String planet, ShipType shipType, Boolean isUsed,
-                                     Long after, Long before,
-                                     Integer minCrewSize, Integer maxCrewSize,
-                                     Double minSpeed, Double maxSpeed,
-                                     Double minRating, Double maxRating) {
-        return findByCriteria(name, planet, shipType, isUsed, after, before, minCrewSize, maxCrewSize, minSpeed, maxSpeed, minRating, maxRating,
-                ShipOrder.ID, null, null);
 
+    public Ship create(Ship ship) {
+        shipParamsRecalculations(ship);
+        Ship savedShip = repository.save(ship);
+        if (replica.isEnabled()) {
+            replica.put(savedShip);
+        }
+        if (textIndex.isEnabled()) {
+            textIndex.put(savedShip);
+        }
+        versions.shipChanged(savedShip.getId());
+        resultCache.invalidate();
+        journal.shipCreated(savedShip);
+        feed.shipCreated(savedShip);
+        return savedShip;
     }
 
+    public List<ShipBatchResult> createAll(List<Ship> ships) {
+        return write(() -> insertAll(ships));
+    }
 
-    public Ship create(Ship ship) {
-        shipParamsRecalculations(ship);
-        return repository.save(ship);
+    private List<ShipBatchResult> insertAll(List<Ship> ships) {
+        List<ShipBatchResult> results = new ArrayList<>(ships.size());
+        List<Ship> validShips = new ArrayList<>(ships.size());
+        BitSet valid = validator.validateAll(ships, true);
+        for (int i = valid.nextSetBit(0); i >= 0; i = valid.nextSetBit(i + 1)) {
+            Ship ship = ships.get(i);
+            if (ship.getUsed() == null) {
+                ship.setUsed(false);
+            }
+            validShips.add(shipParamsRecalculations(ship));
+        }
+
+        List<Long> ids = repository.insertAll(validShips);
+        for (int i = 0, created = 0; i < ships.size(); i++) {
+            Ship ship = ships.get(i);
+            if (created < validShips.size() && validShips.get(created) == ship) {
+                ship.setId(ids.get(created++));
+                results.add(ShipBatchResult.created(i, ship.getId()));
+            } else {
+                results.add(ShipBatchResult.rejected(i));
+            }
+        }
+
+        runAfterCommit(() -> {
+            cache.evictQueries();
+            for (Ship ship : validShips) {
+                if (replica.isEnabled()) {
+                    replica.put(ship);
+                }
+                if (textIndex.isEnabled()) {
+                    textIndex.put(ship);
+                }
+            }
+            versions.allShipsChanged();
+            resultCache.invalidate();
+            validShips.forEach(journal::shipCreated);
+            validShips.forEach(feed::shipCreated);
+        });
+        return results;
     }
 
     public Optional<Ship> getOne(Long id) {
         return repository.findById(id);
     }
 
-    public Ship update(Long shipId, Ship ship) {
-        try {
-            Ship savedShip = repository.findById(shipId).get();
-            boolean dataChanged = false;
+    // one UPDATE of the changed columns with the rating recomputed in the same statement; a
+    // request carrying every field needs no read at all, a partial one reads the row back once
+    public Optional<Ship> update(Long shipId, Ship ship) {
+        return write(() -> updateShip(shipId, ship));
+    }
+
+    private Optional<Ship> updateShip(Long shipId, Ship ship) {
+        boolean fullUpdate = Stream.of(ship.getName(), ship.getPlanet(), ship.getShipType(), ship.getProdDate(), ship.getSpeed(), ship.getCrewSize())
+                .noneMatch(Objects::isNull);
+
+        Ship changes;
+        if (fullUpdate && ship.getUsed() != null) {
+            changes = shipParamsRecalculations(new Ship(shipId, ship.getName(), ship.getPlanet(), ship.getShipType(),
+                    ship.getProdDate(), ship.getUsed(), ship.getSpeed(), ship.getCrewSize(), null));
+        } else {
+            // isUsed is only taken together with all the other fields
+            changes = new Ship(shipId, ship.getName(), ship.getPlanet(), ship.getShipType(), ship.getProdDate(), null,
+                    ship.getSpeed() == null ? null : roundSpeed(ship.getSpeed()), ship.getCrewSize(), null);
+        }
+
+        boolean dataChanged = Stream.of(changes.getName(), changes.getPlanet(), changes.getShipType(), changes.getProdDate(), changes.getSpeed(), changes.getCrewSize())
+                .anyMatch(Objects::nonNull);
+        if (!dataChanged) {
+            return repository.findById(shipId);
+        }
+        // the feed only turns an update into a delete for subscribers that had the ship in view
+        ShipView previous = feed.hasSubscribers() ? findView(shipId) : null;
+        if (repository.updateChanged(shipId, changes) == 0) {
+            return Optional.empty();
+        }
 
-            if (ship.getName() != null) {
-                savedShip.setName(ship.getName());
-                dataChanged=true;
+        cache.evict(shipId);
+        Ship updatedShip = changes.getRating() != null ? changes : overlay(repository.findById(shipId).get(), changes);
+        runAfterCommit(() -> {
+            cache.evict(shipId);
+            cache.evictQueries();
+            if (replica.isEnabled()) {
+                replica.put(updatedShip);
             }
-            if (ship.getPlanet() != null) {
-                savedShip.setPlanet(ship.getPlanet());
-                dataChanged=true;
+            if (textIndex.isEnabled()) {
+                textIndex.put(updatedShip);
             }
-            if (ship.getShipType() != null) {
-                savedShip.setShipType(ship.getShipType());
-                dataChanged=true;
+            versions.shipChanged(shipId);
+            resultCache.invalidate();
+            journal.shipUpdated(updatedShip);
+            feed.shipUpdated(previous, updatedShip);
+        });
+        return Optional.of(updatedShip);
+    }
+
+    // detached copy of the stored row with the requested values on top, so the response keeps
+    // prodDate exactly as it was sent
+    // a projection, so the entity read back after the update is not served from the persistence context
+    private ShipView findView(Long shipId) {
+        List<ShipView> views = repository.findViews((root, query, criteriaBuilder) -> criteriaBuilder.equal(root.get("id"), shipId),
+                Sort.by("id"), 0, 1);
+        return views.isEmpty() ? null : views.get(0);
+    }
+
+    private static Ship overlay(Ship stored, Ship changes) {
+        return new Ship(stored.getId(),
+                changes.getName() != null ? changes.getName() : stored.getName(),
+                changes.getPlanet() != null ? changes.getPlanet() : stored.getPlanet(),
+                changes.getShipType() != null ? changes.getShipType() : stored.getShipType(),
+                changes.getProdDate() != null ? changes.getProdDate() : stored.getProdDate(),
+                stored.getUsed(),
+                changes.getSpeed() != null ? changes.getSpeed() : stored.getSpeed(),
+                changes.getCrewSize() != null ? changes.getCrewSize() : stored.getCrewSize(),
+                stored.getRating());
+    }
+
+    public boolean deleteOne(Long shipId) {
+        return write(() -> removeOne(shipId));
+    }
+
+    private boolean removeOne(Long shipId) {
+        if (repository.removeById(shipId) == 0) {
+            return false;
+        }
+        runAfterCommit(() -> {
+            cache.evict(shipId);
+            cache.evictQueries();
+            if (replica.isEnabled()) {
+                replica.remove(shipId);
             }
-            if (ship.getProdDate() != null) {
-                savedShip.setProdDate(ship.getProdDate());
-                dataChanged=true;
+            if (textIndex.isEnabled()) {
+                textIndex.remove(shipId);
             }
-            if (ship.getUsed() != null) {
-                if(!Stream.of(ship.getName(), ship.getPlanet(), ship.getShipType(), ship.getProdDate(), ship.getSpeed(), ship.getCrewSize())
-                        .anyMatch(Objects::isNull)){
-                savedShip.setUsed(ship.getUsed());
-                dataChanged=true;
+            versions.shipChanged(shipId);
+            resultCache.invalidate();
+            journal.shipDeleted(shipId);
+            feed.shipDeleted(shipId);
+        });
+        return true;
+    }
+
+    // one set-based DELETE; matching ids are only read when the in-memory indexes or the journal need them
+    public int deleteByCriteria(String name, String planet, ShipType shipType, Boolean isUsed,
+                                Long after, Long before,
+                                Integer minCrewSize, Integer maxCrewSize,
+                                Double minSpeed, Double maxSpeed,
+                                Double minRating, Double maxRating) {
+        return write(() -> removeMatching(name, planet, shipType, isUsed, after, before, minCrewSize, maxCrewSize, minSpeed, maxSpeed, minRating, maxRating));
+    }
+
+    private int removeMatching(String name, String planet, ShipType shipType, Boolean isUsed,
+                               Long after, Long before,
+                               Integer minCrewSize, Integer maxCrewSize,
+                               Double minSpeed, Double maxSpeed,
+                               Double minRating, Double maxRating) {
+        Specification<Ship> specification = buildSpecification(name, planet, shipType, isUsed, after, before, minCrewSize, maxCrewSize, minSpeed, maxSpeed, minRating, maxRating);
+        List<Long> ids = replica.isEnabled() || textIndex.isEnabled() || journal.isEnabled()
+                ? repository.findIds(specification) : Collections.emptyList();
+
+        int deleted = repository.deleteMatching(specification);
+        runAfterCommit(() -> {
+            for (Long id : ids) {
+                if (replica.isEnabled()) {
+                    replica.remove(id);
+                }
+                if (textIndex.isEnabled()) {
+                    textIndex.remove(id);
                 }
             }
-            if (ship.getSpeed() != null) {
-                savedShip.setSpeed(ship.getSpeed());
-                dataChanged=true;
-            }
-            if (ship.getCrewSize() != null) {
-                savedShip.setCrewSize(ship.getCrewSize());
-                dataChanged=true;
+            versions.allShipsChanged();
+            resultCache.invalidate();
+            ids.forEach(journal::shipDeleted);
+            if (deleted > 0) {
+                feed.resync("bulk delete");
             }
+        });
+        return deleted;
+    }
 
-            if(dataChanged){
-                savedShip = shipParamsRecalculations(savedShip);
-                repository.save(savedShip);
-            }
-            return savedShip;
-        } catch (Exception e) {
-            e.printStackTrace();
-            return null;
-        }
+    // a write is acknowledged once the journal has its records, which is only waited for after the
+    // transaction committed and gave its connection back
+    private <T> T write(Supplier<T> work) {
+        T result = new TransactionTemplate(transactionManager).execute(status -> work.get());
+        journal.awaitAppends();
+        return result;
     }
 
-    public void deleteOne(Long shipId) {
-        repository.deleteById(shipId);
+    private static void runAfterCommit(Runnable action) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
     }
 
     private Ship shipParamsRecalculations(Ship ship) {
-        final int places = 2;
-        final double SCALE = Math.pow(10, places);
-
-        ship.setSpeed(Math.round(ship.getSpeed() * SCALE) / SCALE);
-
-        double recencyCoefficient = ship.getUsed() ? 0.5 : 1;
-        Calendar calendar = GregorianCalendar.getInstance();
-        calendar.setTime(ship.getProdDate());
-
-        Double rating = (80 * ship.getSpeed() * recencyCoefficient / (3019 - calendar.get(Calendar.YEAR) + 1));
-        ship.setRating(Math.round(rating * SCALE) / SCALE);
+        ship.setSpeed(roundSpeed(ship.getSpeed()));
+        ship.setRating(ShipRating.compute(ship.getSpeed(), ship.getUsed(), ship.getProdDate()));
         return ship;
     }
 
+    private static double roundSpeed(double speed) {
+        return Math.round(speed * 100) / 100.0;
+    }
+
     private boolean textHasContent(String text) {
         String EMPTY_STRING = "";
         return (text != null) && (!text.trim().equals(EMPTY_STRING));
@@ -284,15 +570,11 @@ public class ShipService {
         return true;
     }
 
-    private Date convertDateToYearBeggining(Long date) {
+    static Date convertDateToYearBeggining(Long date) {
         Calendar calendar = GregorianCalendar.getInstance();
         calendar.setTimeInMillis(date);
         calendar.set(calendar.get(Calendar.YEAR), Calendar.JANUARY, 1, 0, 0, 0);
         return calendar.getTime();
     }
 
-
-    public boolean idExists(Long id) {
-        return repository.existsById(id);
-    }
 }
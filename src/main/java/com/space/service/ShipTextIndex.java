@@ -0,0 +1,170 @@
+package com.space.service;
+
+import com.space.model.Ship;
+import com.space.repository.ShipRepository;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// trigram inverted index over name and planet, enabled with -Dcosmoport.textIndex=true
+@Service
+public class ShipTextIndex implements InitializingBean {
+    private static final boolean ENABLED = Boolean.getBoolean("cosmoport.textIndex");
+    private static final int GRAM = 3;
+    // an id list longer than this costs more as an IN clause than the LIKE scan it replaces
+    static final int MAX_CANDIDATES = 1000;
+    private static final int MAX_POSTING_SCAN = 4 * MAX_CANDIDATES;
+
+    @Autowired
+    ShipRepository repository;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Field name = new Field();
+    private final Field planet = new Field();
+
+    @Override
+    public void afterPropertiesSet() {
+        if (ENABLED) {
+            reload();
+        }
+    }
+
+    public boolean isEnabled() {
+        return ENABLED;
+    }
+
+    public void reload() {
+        lock.writeLock().lock();
+        try {
+            name.clear();
+            planet.clear();
+            for (Object[] row : repository.findAllTexts()) {
+                Long id = (Long) row[0];
+                name.put(id, (String) row[1]);
+                planet.put(id, (String) row[2]);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void put(Ship ship) {
+        lock.writeLock().lock();
+        try {
+            name.put(ship.getId(), ship.getName());
+            planet.put(ship.getId(), ship.getPlanet());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long id) {
+        lock.writeLock().lock();
+        try {
+            name.remove(id);
+            planet.remove(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // ids whose name contains the text, or null when the index cannot narrow the search
+    public Set<Long> findByName(String text) {
+        return find(name, text);
+    }
+
+    // ids whose planet contains the text, or null when the index cannot narrow the search
+    public Set<Long> findByPlanet(String text) {
+        return find(planet, text);
+    }
+
+    private Set<Long> find(Field field, String text) {
+        if (text == null || text.length() < GRAM) {
+            return null;
+        }
+        String query = text.toLowerCase(Locale.ROOT);
+        lock.readLock().lock();
+        try {
+            List<Set<Long>> postings = new ArrayList<>();
+            for (String gram : grams(query)) {
+                Set<Long> posting = field.postings.get(gram);
+                if (posting == null) {
+                    return Collections.emptySet();
+                }
+                postings.add(posting);
+            }
+            postings.sort((a, b) -> Integer.compare(a.size(), b.size()));
+            if (postings.get(0).size() > MAX_POSTING_SCAN) {
+                return null;
+            }
+
+            Set<Long> result = new HashSet<>();
+            for (Long id : postings.get(0)) {
+                // the trigrams only prove co-occurrence, the stored text confirms the substring
+                if (field.texts.get(id).contains(query)) {
+                    result.add(id);
+                    if (result.size() > MAX_CANDIDATES) {
+                        return null;
+                    }
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static Set<String> grams(String text) {
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + GRAM <= text.length(); i++) {
+            grams.add(text.substring(i, i + GRAM));
+        }
+        return grams;
+    }
+
+    private static class Field {
+        final Map<Long, String> texts = new HashMap<>();
+        final Map<String, Set<Long>> postings = new HashMap<>();
+
+        void put(Long id, String text) {
+            remove(id);
+            if (text == null) {
+                return;
+            }
+            String lowerCase = text.toLowerCase(Locale.ROOT);
+            texts.put(id, lowerCase);
+            for (String gram : grams(lowerCase)) {
+                postings.computeIfAbsent(gram, key -> new HashSet<>()).add(id);
+            }
+        }
+
+        void remove(Long id) {
+            String old = texts.remove(id);
+            if (old == null) {
+                return;
+            }
+            for (String gram : grams(old)) {
+                Set<Long> posting = postings.get(gram);
+                posting.remove(id);
+                if (posting.isEmpty()) {
+                    postings.remove(gram);
+                }
+            }
+        }
+
+        void clear() {
+            texts.clear();
+            postings.clear();
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.space.service;
+
+import com.space.model.Ship;
+import org.springframework.stereotype.Service;
+
+import java.util.BitSet;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.GregorianCalendar;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+// the ship field rules with their bounds resolved once: the production year check becomes a
+// range check on epoch millis against the first instants of 2800 and 3020 in the default time
+// zone, and every other rule compares primitives without allocating
+@Service
+public class ShipValidator {
+    static final int MIN_PROD_YEAR = 2800;
+    static final int MAX_PROD_YEAR = 3019;
+    static final int MAX_TEXT_LENGTH = 50;
+    static final double MIN_SPEED = 0.01;
+    static final double MAX_SPEED = 0.99;
+    static final int MIN_CREW_SIZE = 1;
+    static final int MAX_CREW_SIZE = 9999;
+
+    public enum Rule {
+        NO_BODY,
+        MISSING_FIELD,
+        NAME,
+        PLANET,
+        PROD_DATE,
+        SPEED,
+        CREW_SIZE
+    }
+
+    private final long minProdMillis = startOfYear(MIN_PROD_YEAR);
+    private final long maxProdMillisExclusive = startOfYear(MAX_PROD_YEAR + 1);
+
+    private final LongAdder checked = new LongAdder();
+    private final LongAdder[] rejected = new LongAdder[Rule.values().length];
+
+    public ShipValidator() {
+        for (int i = 0; i < rejected.length; i++) {
+            rejected[i] = new LongAdder();
+        }
+    }
+
+    public boolean isValid(Ship ship, boolean notNullFields) {
+        checked.increment();
+        Rule rule = firstBrokenRule(ship, notNullFields);
+        if (rule != null) {
+            rejected[rule.ordinal()].increment();
+            return false;
+        }
+        return true;
+    }
+
+    // bit i is set when ships.get(i) passes
+    public BitSet validateAll(List<Ship> ships, boolean notNullFields) {
+        BitSet valid = new BitSet(ships.size());
+        for (int i = 0; i < ships.size(); i++) {
+            if (isValid(ships.get(i), notNullFields)) {
+                valid.set(i);
+            }
+        }
+        return valid;
+    }
+
+    public Rule firstBrokenRule(Ship ship, boolean notNullFields) {
+        if (ship == null) {
+            return Rule.NO_BODY;
+        }
+        String name = ship.getName();
+        String planet = ship.getPlanet();
+        Date prodDate = ship.getProdDate();
+        Double speed = ship.getSpeed();
+        Integer crewSize = ship.getCrewSize();
+
+        if (notNullFields && (name == null || planet == null || ship.getShipType() == null
+                || prodDate == null || speed == null || crewSize == null)) {
+            return Rule.MISSING_FIELD;
+        }
+        if (name != null && !textIsValid(name)) {
+            return Rule.NAME;
+        }
+        if (planet != null && !textIsValid(planet)) {
+            return Rule.PLANET;
+        }
+        if (prodDate != null && !prodDateIsValid(prodDate.getTime())) {
+            return Rule.PROD_DATE;
+        }
+        if (speed != null && !speedIsValid(speed)) {
+            return Rule.SPEED;
+        }
+        if (crewSize != null && !crewSizeIsValid(crewSize)) {
+            return Rule.CREW_SIZE;
+        }
+        return null;
+    }
+
+    // same as !text.trim().isEmpty() && text.length() <= 50, without the trimmed copy
+    boolean textIsValid(String text) {
+        int length = text.length();
+        if (length > MAX_TEXT_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (text.charAt(i) > ' ') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    boolean prodDateIsValid(long millis) {
+        return millis >= minProdMillis && millis < maxProdMillisExclusive;
+    }
+
+    boolean speedIsValid(double speed) {
+        return speed >= MIN_SPEED && speed <= MAX_SPEED;
+    }
+
+    boolean crewSizeIsValid(int crewSize) {
+        return crewSize >= MIN_CREW_SIZE && crewSize <= MAX_CREW_SIZE;
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("checked", checked.sum());
+        for (Rule rule : Rule.values()) {
+            stats.put(rule.name(), rejected[rule.ordinal()].sum());
+        }
+        return stats;
+    }
+
+    private static long startOfYear(int year) {
+        Calendar calendar = GregorianCalendar.getInstance();
+        calendar.clear();
+        calendar.set(year, Calendar.JANUARY, 1, 0, 0, 0);
+        return calendar.getTimeInMillis();
+    }
+}
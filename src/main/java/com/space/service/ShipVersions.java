@@ -0,0 +1,65 @@
+package com.space.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// strong ETags for the read endpoints. Result lists are tagged with the data version of
+// ShipResultCache, single ships with their own change counter plus an epoch that bulk writes
+// move. The boot id keeps tags from one process lifetime from matching the next. Tags have to be
+// taken before the data is read: a write racing with the read then only costs a refetch.
+// With read replicas a tag is null while its data changed less than the replica lag ago, the read
+// may come from a replica that still serves the data from before
+@Service
+public class ShipVersions {
+    @Autowired
+    ShipResultCache resultCache;
+
+    private final String bootId = Long.toString(System.currentTimeMillis(), 36);
+    private final long replicaLagMillis;
+    private final AtomicLong epoch = new AtomicLong();
+    private volatile long epochChangedAtMillis;
+    private final ConcurrentMap<Long, Long> shipVersions = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Long, Long> shipChangedAtMillis = new ConcurrentHashMap<>();
+
+    public ShipVersions() {
+        this(ShipResultCache.REPLICA_LAG_MILLIS);
+    }
+
+    ShipVersions(long replicaLagMillis) {
+        this.replicaLagMillis = replicaLagMillis;
+    }
+
+    public String dataTag() {
+        long version = resultCache.settledVersion();
+        return version < 0 ? null : "\"" + bootId + "-" + version + "\"";
+    }
+
+    public String shipTag(long id) {
+        long epochNow = epoch.get();
+        long version = shipVersions.getOrDefault(id, 0L);
+        long changedAt = Math.max(epochChangedAtMillis, shipChangedAtMillis.getOrDefault(id, 0L));
+        if (replicaLagMillis > 0 && System.currentTimeMillis() - changedAt < replicaLagMillis) {
+            return null;
+        }
+        return "\"" + bootId + "-" + epochNow + "-" + version + "\"";
+    }
+
+    void shipChanged(long id) {
+        if (replicaLagMillis > 0) {
+            shipChangedAtMillis.put(id, System.currentTimeMillis());
+        }
+        shipVersions.merge(id, 1L, Long::sum);
+    }
+
+    // a new epoch already changes every ship tag, so the per-ship counters can start over
+    void allShipsChanged() {
+        epochChangedAtMillis = System.currentTimeMillis();
+        epoch.incrementAndGet();
+        shipVersions.clear();
+        shipChangedAtMillis.clear();
+    }
+}
@@ -0,0 +1,159 @@
+package com.space.service;
+
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+// virtual-thread mode, switched on with -Dcosmoport.virtualThreads=true on JDK 21+. The sources
+// still target Java 8, so everything JDK 21 specific is reached through reflection and the mode
+// quietly stays off on older runtimes. While it is on, pinned virtual threads are recorded from
+// the jdk.VirtualThreadPinned JFR event (blocking for 20 ms or more while holding a monitor),
+// counted by the innermost com.space frame or, failing that, the innermost frame.
+// The mode covers the threads the application owns: async searches and counts (SearchExecutor),
+// change feed senders and the import writer. Synchronous handlers keep running on the servlet
+// container's request threads, which only the container's connector executor can make virtual
+public final class VirtualThreads {
+    private static final int MAX_PINNED_SITES = 50;
+
+    private static final Method OF_VIRTUAL = method(Thread.class, "ofVirtual");
+    private static final Method IS_VIRTUAL = method(Thread.class, "isVirtual");
+    public static final boolean AVAILABLE = OF_VIRTUAL != null;
+    public static final boolean ENABLED = Boolean.getBoolean("cosmoport.virtualThreads") && AVAILABLE;
+
+    private static final LongAdder pinned = new LongAdder();
+    private static final LongAdder pinnedNanos = new LongAdder();
+    private static final ConcurrentMap<String, LongAdder> pinnedSites = new ConcurrentHashMap<>();
+    private static volatile String monitorError;
+
+    static {
+        if (ENABLED) {
+            startPinningMonitor();
+        }
+    }
+
+    private VirtualThreads() {
+    }
+
+    private static Method method(Class<?> type, String name, Class<?>... parameters) {
+        try {
+            return type.getMethod(name, parameters);
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    // Thread.ofVirtual().name(prefix, 0).factory()
+    public static ThreadFactory factory(String prefix) {
+        try {
+            // the builder implementation is not public, its interface is
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            Object builder = OF_VIRTUAL.invoke(null);
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, prefix, 0L);
+            return (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("virtual threads are not available", e);
+        }
+    }
+
+    // Executors.newThreadPerTaskExecutor(factory(prefix))
+    public static ExecutorService newThreadPerTaskExecutor(String prefix) {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class)
+                    .invoke(null, factory(prefix));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("virtual threads are not available", e);
+        }
+    }
+
+    public static boolean isVirtual(Thread thread) {
+        try {
+            return IS_VIRTUAL != null && (Boolean) IS_VIRTUAL.invoke(thread);
+        } catch (ReflectiveOperationException e) {
+            return false;
+        }
+    }
+
+    // a RecordingStream on jdk.VirtualThreadPinned with stack traces; JFR is always in a JDK 21 runtime
+    private static void startPinningMonitor() {
+        try {
+            Class<?> streamType = Class.forName("jdk.jfr.consumer.RecordingStream");
+            Object stream = streamType.getConstructor().newInstance();
+            Object settings = streamType.getMethod("enable", String.class).invoke(stream, "jdk.VirtualThreadPinned");
+            Class.forName("jdk.jfr.EventSettings").getMethod("withStackTrace").invoke(settings);
+            Consumer<Object> onPinned = VirtualThreads::recordPinned;
+            streamType.getMethod("onEvent", String.class, Consumer.class).invoke(stream, "jdk.VirtualThreadPinned", onPinned);
+            streamType.getMethod("setReuse", boolean.class).invoke(stream, true);
+            // startAsync would run on a non-daemon thread and keep the CLI commands from exiting
+            Method start = streamType.getMethod("start");
+            Thread thread = new Thread(() -> {
+                try {
+                    start.invoke(stream);
+                } catch (ReflectiveOperationException e) {
+                    monitorError = e.toString();
+                }
+            }, "virtual-thread-pinning");
+            thread.setDaemon(true);
+            thread.start();
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            monitorError = e.toString();
+        }
+    }
+
+    private static void recordPinned(Object event) {
+        pinned.increment();
+        try {
+            pinnedNanos.add(((Duration) call(event, "getDuration")).toNanos());
+            Object stackTrace = call(event, "getStackTrace");
+            String site = "unknown";
+            if (stackTrace != null) {
+                List<?> frames = (List<?>) call(stackTrace, "getFrames");
+                for (int i = 0; i < frames.size(); i++) {
+                    Object method = call(frames.get(i), "getMethod");
+                    String frame = call(call(method, "getType"), "getName") + "." + call(method, "getName");
+                    if (i == 0) {
+                        site = frame;
+                    }
+                    if (frame.startsWith("com.space.")) {
+                        site = frame;
+                        break;
+                    }
+                }
+            }
+            if (pinnedSites.size() < MAX_PINNED_SITES || pinnedSites.containsKey(site)) {
+                pinnedSites.computeIfAbsent(site, s -> new LongAdder()).increment();
+            }
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            monitorError = e.toString();
+        }
+    }
+
+    private static Object call(Object target, String method) throws ReflectiveOperationException {
+        return target.getClass().getMethod(method).invoke(target);
+    }
+
+    public static Map<String, Object> snapshot() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("available", AVAILABLE);
+        stats.put("enabled", ENABLED);
+        stats.put("pinned", pinned.sum());
+        stats.put("pinnedMillisTotal", pinnedNanos.sum() / 1_000_000.0);
+        Map<String, Long> sites = new LinkedHashMap<>();
+        pinnedSites.entrySet().stream()
+                .sorted((a, b) -> Long.compare(b.getValue().sum(), a.getValue().sum()))
+                .forEach(site -> sites.put(site.getKey(), site.getValue().sum()));
+        stats.put("pinnedSites", sites);
+        if (monitorError != null) {
+            stats.put("monitorError", monitorError);
+        }
+        return stats;
+    }
+}
@@ -0,0 +1,14 @@
+-- InnoDB appends the primary key to every secondary index, so each index below
+-- is effectively (..., id) and also serves the "ORDER BY <key>, id" tie-break.
+
+-- range filters and ORDER BY speed / prodDate / rating
+CREATE INDEX idx_ship_speed ON ship (speed);
+CREATE INDEX idx_ship_prodDate ON ship (prodDate);
+CREATE INDEX idx_ship_rating ON ship (rating);
+CREATE INDEX idx_ship_crewSize ON ship (crewSize);
+
+-- shipType / isUsed tabs, optionally combined with a sort order; (shipType, isUsed) alone is a
+-- prefix of all three, so a separate index on it would only add maintenance to every write
+CREATE INDEX idx_ship_type_used_speed ON ship (shipType, isUsed, speed);
+CREATE INDEX idx_ship_type_used_prodDate ON ship (shipType, isUsed, prodDate);
+CREATE INDEX idx_ship_type_used_rating ON ship (shipType, isUsed, rating);
@@ -0,0 +1,46 @@
+package com.space.config;
+
+import com.space.model.Ship;
+import org.hibernate.cache.spi.RegionFactory;
+import org.junit.Test;
+
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class CacheConfigTest {
+
+    @Test
+    public void createsEveryRegionHibernateExpects() {
+        try (CacheManager cacheManager = CacheConfig.createCacheManager()) {
+            assertNotNull(cacheManager.getCache(Ship.class.getName()));
+            assertNotNull(cacheManager.getCache(RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME));
+            assertNotNull(cacheManager.getCache(RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME));
+        }
+    }
+
+    @Test
+    public void contextsInOneJvmGetSeparateManagers() {
+        CacheManager first = CacheConfig.createCacheManager();
+        try (CacheManager second = CacheConfig.createCacheManager()) {
+            assertNotSame(first, second);
+            Cache<Object, Object> ships = first.getCache(Ship.class.getName());
+            ships.put(1L, "cached");
+            assertEquals("cached", ships.get(1L));
+            assertNull(second.getCache(Ship.class.getName()).get(1L));
+
+            // closing one context's manager leaves the other working
+            first.close();
+            assertTrue(first.isClosed());
+            assertFalse(second.isClosed());
+            second.getCache(Ship.class.getName()).put(2L, "cached");
+            assertEquals("cached", second.getCache(Ship.class.getName()).get(2L));
+        }
+    }
+}
@@ -0,0 +1,234 @@
+package com.space.config;
+
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import javax.servlet.http.Cookie;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class ReadWriteRoutingDataSourceTest {
+
+    private final StubDataSource primary = new StubDataSource("primary");
+    private final StubDataSource first = new StubDataSource("replica-1");
+    private final StubDataSource second = new StubDataSource("replica-2");
+    private final ReadWriteRoutingDataSource routing = new ReadWriteRoutingDataSource(primary, null, 60_000, 60_000);
+
+    {
+        routing.addReplica("replica-1", first, null);
+        routing.addReplica("replica-2", second, null);
+    }
+
+    @After
+    public void clear() {
+        TransactionSynchronizationManager.clear();
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    private static void transaction(boolean readOnly) {
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(readOnly);
+    }
+
+    private String target() throws SQLException {
+        return routing.getConnection().toString();
+    }
+
+    private static String onAnotherThread(Callable<String> task) throws Exception {
+        ExecutorService thread = Executors.newSingleThreadExecutor();
+        try {
+            return thread.submit(task).get();
+        } finally {
+            thread.shutdown();
+        }
+    }
+
+    @Test
+    public void readsTakeTurnsOnReplicasAndWritesGoToPrimary() throws SQLException {
+        transaction(true);
+        assertEquals("replica-1", target());
+        assertEquals("replica-2", target());
+        TransactionSynchronizationManager.clear();
+        // outside a transaction nothing can be written
+        assertEquals("replica-1", target());
+
+        transaction(false);
+        assertEquals("primary", target());
+    }
+
+    @Test
+    public void readsFollowingAWriteStayOnPrimary() throws SQLException {
+        transaction(false);
+        target();
+        transaction(true);
+        assertEquals("primary", target());
+
+        ReadWriteRoutingDataSource expired = new ReadWriteRoutingDataSource(primary, null, 0, 60_000);
+        expired.addReplica("replica-1", first, null);
+        transaction(false);
+        expired.getConnection();
+        transaction(true);
+        assertEquals("replica-1", expired.getConnection().toString());
+    }
+
+    @Test
+    public void stickinessCarriesOverToTheNextRequestThroughACookie() throws SQLException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest(), response));
+        transaction(false);
+        target();
+        transaction(true);
+        assertEquals("primary", target());
+        Cookie cookie = response.getCookie(ReadWriteRoutingDataSource.STICKY_COOKIE);
+        assertNotNull(cookie);
+
+        MockHttpServletRequest next = new MockHttpServletRequest();
+        next.setCookies(cookie);
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(next, new MockHttpServletResponse()));
+        assertEquals("primary", target());
+
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest(), new MockHttpServletResponse()));
+        assertEquals("replica-1", target());
+    }
+
+    @Test
+    public void otherClientsKeepReadingReplicasAfterAWrite() throws Exception {
+        transaction(false);
+        target();
+        TransactionSynchronizationManager.clear();
+
+        assertEquals("primary", target());
+        // no request and not the thread that wrote
+        assertEquals("replica-1", onAnotherThread(this::target));
+    }
+
+    @Test
+    public void withoutReplicasNothingSticks() throws SQLException {
+        ReadWriteRoutingDataSource primaryOnly = new ReadWriteRoutingDataSource(primary, null, 60_000, 60_000);
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request, response));
+        transaction(false);
+        assertEquals("primary", primaryOnly.getConnection().toString());
+        primaryOnly.stickToPrimary();
+
+        assertNull(response.getCookie(ReadWriteRoutingDataSource.STICKY_COOKIE));
+        assertFalse(request.getAttributeNames().hasMoreElements());
+    }
+
+    @Test
+    public void workOnAnotherThreadTakesTheClientsStickinessAlong() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setCookies(new Cookie(ReadWriteRoutingDataSource.STICKY_COOKIE, Long.toString(System.currentTimeMillis() + 60_000)));
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request, new MockHttpServletResponse()));
+        Supplier<String> sticky = routing.withStickiness(() -> {
+            try {
+                return target();
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        RequestContextHolder.resetRequestAttributes();
+
+        ExecutorService worker = Executors.newSingleThreadExecutor();
+        try {
+            assertEquals("primary", worker.submit(sticky::get).get());
+            // the worker thread does not keep it for the next task
+            assertEquals("replica-1", worker.submit(this::target).get());
+        } finally {
+            worker.shutdown();
+        }
+    }
+
+    @Test
+    public void writesOnAnotherThreadAreCreditedToTheClient() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest(), response));
+        routing.stickToPrimary();
+
+        assertEquals("primary", target());
+        assertNotNull(response.getCookie(ReadWriteRoutingDataSource.STICKY_COOKIE));
+    }
+
+    @Test
+    public void connectionsWithCredentialsAreRoutedToo() throws SQLException {
+        transaction(true);
+        assertEquals("replica-1", routing.getConnection("cosmoport", "secret").toString());
+        transaction(false);
+        assertEquals("primary", routing.getConnection("cosmoport", "secret").toString());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void failingReplicaIsLeftOut() throws SQLException {
+        first.failing = true;
+        transaction(true);
+        assertEquals("primary", target());
+        assertEquals("replica-2", target());
+        assertEquals("replica-2", target());
+
+        Map<String, Object> stats = routing.snapshot();
+        assertEquals(1L, stats.get("fallbacks"));
+        assertEquals(true, ((Map<String, Object>) stats.get("replica-1")).get("down"));
+        assertEquals(2L, ((Map<String, Object>) stats.get("replica-2")).get("connections"));
+    }
+
+    @Test
+    public void lazyProxyRoutesByTheFlagsSetAfterBegin() throws SQLException {
+        // JpaTransactionManager opens the connection first and marks the transaction read-only after
+        Connection connection = new LazyConnectionDataSourceProxy(routing).getConnection();
+        assertEquals(0, primary.connections);
+        transaction(false);
+        connection.createStatement();
+        assertEquals(1, primary.connections);
+    }
+
+    private static final class StubDataSource extends AbstractDataSource {
+        private final String name;
+        private volatile boolean failing;
+        private int connections;
+
+        StubDataSource(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            if (failing) {
+                throw new SQLException(name + " is down");
+            }
+            connections++;
+            return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+                    (proxy, method, args) -> {
+                        if (method.getName().equals("toString")) {
+                            return name;
+                        }
+                        Class<?> type = method.getReturnType();
+                        return type == boolean.class ? Boolean.FALSE : type == int.class ? 0 : null;
+                    });
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            return getConnection();
+        }
+    }
+}
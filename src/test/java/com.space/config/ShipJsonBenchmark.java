@@ -0,0 +1,107 @@
+package com.space.config;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.space.model.ShipType;
+import com.space.model.ShipView;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.GenericHttpMessageConverter;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+// compares ShipJsonConverter with the Jackson converter WebConfig used before, on one thread:
+// java -cp target/test-classes:target/classes:<dependency classpath> com.space.config.ShipJsonBenchmark [pageSize] [seconds]
+// prints MB/s of JSON produced and bytes allocated per response (via com.sun.management.ThreadMXBean)
+public class ShipJsonBenchmark {
+    private static final Type VIEW_LIST = new ParameterizedTypeReference<List<ShipView>>() {
+    }.getType();
+
+    public static void main(String[] args) throws Exception {
+        int pageSize = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+        List<ShipView> page = new ArrayList<>();
+        for (int i = 0; i < pageSize; i++) {
+            page.add(new ShipView((long) i, "Ship " + i, "Planet " + i % 50, ShipType.values()[i % 3],
+                    new Date(32_000_000_000_000L + i * 86_400_000L), i % 2 == 0, 0.01 * (i % 99) + 0.01, i % 9999 + 1, 1.0 + i % 500 / 7.0));
+        }
+
+        MappingJackson2HttpMessageConverter jackson = new MappingJackson2HttpMessageConverter();
+        jackson.getObjectMapper().setVisibility(PropertyAccessor.ALL, JsonAutoDetect.Visibility.NONE);
+        jackson.getObjectMapper().setVisibility(PropertyAccessor.FIELD, JsonAutoDetect.Visibility.ANY);
+        // compression is measured separately, the comparison is about serialization
+        ShipJsonConverter ships = new ShipJsonConverter(-1);
+
+        for (int round = 0; round < 2; round++) {
+            String label = round == 0 ? "warmup " : "";
+            run(label + "jackson", jackson, page, seconds);
+            run(label + "ships  ", ships, page, seconds);
+        }
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(HttpHeaders.ACCEPT_ENCODING, "gzip");
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+        run("ships+gzip", new ShipJsonConverter(0), page, seconds);
+    }
+
+    private static void run(String label, GenericHttpMessageConverter<Object> converter, List<ShipView> page, int seconds) throws Exception {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        CountingMessage message = new CountingMessage();
+
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+        long allocatedBefore = threads.getThreadAllocatedBytes(thread);
+        long start = System.nanoTime();
+        long responses = 0;
+        while (System.nanoTime() < deadline) {
+            message.headers.clear();
+            converter.write(page, VIEW_LIST, MediaType.APPLICATION_JSON_UTF8, message);
+            responses++;
+        }
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        long allocated = threads.getThreadAllocatedBytes(thread) - allocatedBefore;
+
+        System.out.printf("%-16s %8d responses  %8.1f MB/s  %10d bytes/response  %10d allocated bytes/response%n",
+                label, responses, message.body.count / elapsed / 1e6, message.body.count / responses, allocated / responses);
+    }
+
+    private static final class CountingMessage implements HttpOutputMessage {
+        final HttpHeaders headers = new HttpHeaders();
+        final CountingStream body = new CountingStream();
+
+        @Override
+        public OutputStream getBody() {
+            return body;
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return headers;
+        }
+    }
+
+    private static final class CountingStream extends OutputStream {
+        long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
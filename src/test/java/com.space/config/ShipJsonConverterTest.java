@@ -0,0 +1,152 @@
+package com.space.config;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.space.controller.ShipPage;
+import com.space.model.Ship;
+import com.space.model.ShipType;
+import com.space.model.ShipView;
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.MockHttpOutputMessage;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ShipJsonConverterTest {
+    private static final Type VIEW_LIST = new ParameterizedTypeReference<List<ShipView>>() {
+    }.getType();
+
+    private final ObjectMapper mapper = new ObjectMapper()
+            .setVisibility(PropertyAccessor.ALL, JsonAutoDetect.Visibility.NONE)
+            .setVisibility(PropertyAccessor.FIELD, JsonAutoDetect.Visibility.ANY);
+
+    @After
+    public void resetRequest() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    private static List<ShipView> views(int count) {
+        List<ShipView> views = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            views.add(new ShipView((long) i, "Ship \"" + i + "\" ★", "Планета\n" + i, ShipType.values()[i % 3],
+                    new Date(32_000_000_000_000L + i * 86_400_000L), i % 2 == 0, 0.01 * i + 0.5, i + 1, 1.0 / (i + 3)));
+        }
+        return views;
+    }
+
+    private byte[] write(ShipJsonConverter converter, Object body, Type type) throws Exception {
+        MockHttpOutputMessage message = new MockHttpOutputMessage();
+        converter.write(body, type, MediaType.APPLICATION_JSON_UTF8, message);
+        return message.getBodyAsBytes();
+    }
+
+    @Test
+    public void matchesJacksonOutput() throws Exception {
+        ShipJsonConverter converter = new ShipJsonConverter(-1);
+        List<ShipView> views = views(20);
+        Ship ship = new Ship(7L, "Orion", "Earth", ShipType.MILITARY, new Date(33_000_000_000_000L), true, 0.37, 1200, 2.53);
+        ShipPage page = new ShipPage(new PageImpl<>(views.subList(0, 5), PageRequest.of(1, 5), 20));
+
+        assertArrayEquals(mapper.writeValueAsBytes(views), write(converter, views, VIEW_LIST));
+        assertArrayEquals(mapper.writeValueAsBytes(ship), write(converter, ship, Ship.class));
+        assertArrayEquals(mapper.writeValueAsBytes(page), write(converter, page, ShipPage.class));
+    }
+
+    @Test
+    public void writesNullsLikeJackson() throws Exception {
+        ShipJsonConverter converter = new ShipJsonConverter(-1);
+        ShipView empty = new ShipView(null, null, null, null, null, null, null, null, null);
+
+        assertArrayEquals(mapper.writeValueAsBytes(Arrays.asList(empty)), write(converter, Arrays.asList(empty), VIEW_LIST));
+    }
+
+    @Test
+    public void onlyShipTypesAreWritable() {
+        ShipJsonConverter converter = new ShipJsonConverter(-1);
+
+        assertTrue(converter.canWrite(VIEW_LIST, List.class, MediaType.APPLICATION_JSON));
+        assertTrue(converter.canWrite(Ship.class, Ship.class, MediaType.APPLICATION_JSON));
+        assertFalse(converter.canWrite(Long.class, Long.class, MediaType.APPLICATION_JSON));
+        assertFalse(converter.canWrite(new ParameterizedTypeReference<List<String>>() {
+        }.getType(), List.class, MediaType.APPLICATION_JSON));
+        assertFalse(converter.canWrite(Ship.class, Ship.class, MediaType.APPLICATION_XML));
+        assertFalse(converter.canRead(Ship.class, null, MediaType.APPLICATION_JSON));
+    }
+
+    @Test
+    public void largeBodiesAreGzippedWhenAccepted() throws Exception {
+        ShipJsonConverter converter = new ShipJsonConverter(1024);
+        List<ShipView> views = views(100);
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        response.setHeader(HttpHeaders.ETAG, "\"boot-7\"");
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request, response));
+
+        MockHttpOutputMessage message = new MockHttpOutputMessage();
+        converter.write(views, VIEW_LIST, MediaType.APPLICATION_JSON_UTF8, message);
+
+        assertEquals("gzip", message.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertEquals(message.getBodyAsBytes().length, message.getHeaders().getContentLength());
+        byte[] unzipped = StreamUtils.copyToByteArray(new GZIPInputStream(new ByteArrayInputStream(message.getBodyAsBytes())));
+        assertArrayEquals(mapper.writeValueAsBytes(views), unzipped);
+        assertEquals(1L, converter.snapshot().get("gzipped"));
+        assertEquals("\"boot-7-gzip\"", response.getHeader(HttpHeaders.ETAG));
+    }
+
+    @Test
+    public void gzipIsAcceptedByQualityValue() {
+        assertTrue(ShipJsonConverter.acceptsGzip("gzip, deflate, br"));
+        assertTrue(ShipJsonConverter.acceptsGzip("deflate;q=1.0, GZIP;q=0.5"));
+        assertTrue(ShipJsonConverter.acceptsGzip("x-gzip"));
+        assertTrue(ShipJsonConverter.acceptsGzip("br, *;q=0.1"));
+        assertFalse(ShipJsonConverter.acceptsGzip("gzip;q=0"));
+        assertFalse(ShipJsonConverter.acceptsGzip("gzip; q=0.000, *"));
+        assertFalse(ShipJsonConverter.acceptsGzip("*;q=0"));
+        assertFalse(ShipJsonConverter.acceptsGzip("identity, deflate"));
+        assertFalse(ShipJsonConverter.acceptsGzip("gzip;q=bogus"));
+        assertFalse(ShipJsonConverter.acceptsGzip(null));
+    }
+
+    @Test
+    public void smallBodiesAndOtherClientsAreNotGzipped() throws Exception {
+        ShipJsonConverter converter = new ShipJsonConverter(1024);
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+
+        MockHttpOutputMessage large = new MockHttpOutputMessage();
+        converter.write(views(100), VIEW_LIST, MediaType.APPLICATION_JSON_UTF8, large);
+        MockHttpOutputMessage small = new MockHttpOutputMessage();
+        converter.write(views(1), VIEW_LIST, MediaType.APPLICATION_JSON_UTF8, small);
+
+        assertNull(large.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertEquals(HttpHeaders.ACCEPT_ENCODING, large.getHeaders().getFirst(HttpHeaders.VARY));
+        assertNull(small.getHeaders().getFirst(HttpHeaders.VARY));
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        mapper.writeValue(expected, views(1));
+        assertArrayEquals(expected.toByteArray(), small.getBodyAsBytes());
+    }
+}
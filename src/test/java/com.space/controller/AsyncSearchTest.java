@@ -0,0 +1,93 @@
+package com.space.controller;
+
+import com.space.config.MyWebAppInit;
+import com.space.config.WebConfig;
+import com.space.controller.utils.TestDataSourceConfig;
+import com.space.controller.utils.TestsHelper;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.context.jdbc.SqlConfig;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import static org.springframework.test.util.AssertionErrors.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = {TestDataSourceConfig.class, MyWebAppInit.class, WebConfig.class})
+@WebAppConfiguration
+@Sql(scripts = "classpath:test.sql", config = @SqlConfig(encoding = "UTF-8"))
+public class AsyncSearchTest {
+
+    private WebApplicationContext context;
+    private MockMvc mockMvc;
+
+    private TestsHelper testsHelper = new TestsHelper();
+
+    @Before
+    public void setup() {
+        mockMvc = MockMvcBuilders.webAppContextSetup(context).build();
+    }
+
+    private String perform(String url) throws Exception {
+        MvcResult started = mockMvc.perform(get(url)
+                .accept(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        return mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+    }
+
+    //test1
+    @Test
+    public void asyncSearchMatchesSyncSearch() throws Exception {
+        String url = "?planet=Earth&order=SPEED&pageNumber=0&pageSize=5";
+        String expected = mockMvc.perform(get("/rest/ships" + url)
+                .accept(MediaType.APPLICATION_JSON_UTF8))
+                .andReturn().getResponse().getContentAsString();
+
+        String actual = perform("/rest/ships/async" + url);
+
+        assertTrue("GET /rest/ships/async вернул не то же, что GET /rest/ships", expected.equals(actual));
+    }
+
+    //test2
+    @Test
+    public void asyncCountReturnsAllShips() throws Exception {
+        int actual = Integer.parseInt(perform("/rest/ships/count/async"));
+
+        assertTrue("Возвращается не правильный результат при запросе GET /rest/ships/count/async.",
+                actual == testsHelper.getAllShips().size());
+    }
+
+    //test3
+    @Test
+    public void asyncCountNotModified() throws Exception {
+        String etag = mockMvc.perform(get("/rest/ships/count"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/rest/ships/count/async")
+                .header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(request().asyncNotStarted())
+                .andExpect(status().isNotModified());
+    }
+
+    @Autowired
+    public void setContext(WebApplicationContext context) {
+        this.context = context;
+    }
+}
@@ -0,0 +1,87 @@
+package com.space.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.space.config.MyWebAppInit;
+import com.space.config.WebConfig;
+import com.space.controller.utils.ShipInfoTest;
+import com.space.controller.utils.TestDataSourceConfig;
+import com.space.controller.utils.TestsHelper;
+import com.space.model.ShipType;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.context.jdbc.SqlConfig;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import static org.springframework.test.util.AssertionErrors.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = {TestDataSourceConfig.class, MyWebAppInit.class, WebConfig.class})
+@WebAppConfiguration
+@Sql(scripts = "classpath:test.sql", config = @SqlConfig(encoding = "UTF-8"))
+public class CreateShipsBatchTest {
+
+    private WebApplicationContext context;
+    private MockMvc mockMvc;
+
+    private ObjectMapper mapper = new ObjectMapper();
+
+    @Before
+    public void setup() {
+        mockMvc = MockMvcBuilders.webAppContextSetup(context).build();
+    }
+
+    //test1
+    @Test
+    public void createShipsEmptyBodyTest() throws Exception {
+        mockMvc.perform(post("/rest/ships/batch")
+                .contentType(MediaType.APPLICATION_JSON_UTF8)
+                .accept(MediaType.APPLICATION_JSON_UTF8)
+                .content("[]"))
+                .andExpect(status().isBadRequest());
+    }
+
+    //test2
+    @Test
+    public void createShipsReportsEachItemTest() throws Exception {
+        String body = "[" + TestsHelper.NORMAL_JSON + "," + TestsHelper.NO_SPEED_JSON + "," + TestsHelper.IS_USED_TRUE_JSON + "]";
+        ResultActions resultActions = mockMvc.perform(post("/rest/ships/batch")
+                .contentType(MediaType.APPLICATION_JSON_UTF8)
+                .accept(MediaType.APPLICATION_JSON_UTF8)
+                .content(body))
+                .andExpect(status().isOk());
+
+        JsonNode results = mapper.readTree(resultActions.andReturn().getResponse().getContentAsString());
+        assertTrue("Возвращается не правильный результат при пакетном создании кораблей.",
+                results.size() == 3
+                        && results.get(0).get("created").asBoolean() && results.get(0).get("id").asLong() == 41
+                        && !results.get(1).get("created").asBoolean()
+                        && results.get(2).get("created").asBoolean() && results.get(2).get("id").asLong() == 42);
+
+        String contentAsString = mockMvc.perform(get("/rest/ships/42")
+                .accept(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        ShipInfoTest actual = mapper.readValue(contentAsString, ShipInfoTest.class);
+        ShipInfoTest expected = new ShipInfoTest(42L, "123456789", "Earth", ShipType.MILITARY, 32998274577071L, true, 0.8, 14, 6.4);
+        assertTrue("Возвращается не правильный рейтинг корабля, созданного пакетным запросом.", actual.equals(expected));
+    }
+
+    @Autowired
+    public void setContext(WebApplicationContext context) {
+        this.context = context;
+    }
+}
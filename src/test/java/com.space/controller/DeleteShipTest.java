@@ -2,7 +2,10 @@ package com.space.controller;
 
 import com.space.config.MyWebAppInit;
 import com.space.config.WebConfig;
+import com.space.controller.utils.ShipInfoTest;
 import com.space.controller.utils.TestDataSourceConfig;
+import com.space.controller.utils.TestsHelper;
+import com.space.model.ShipType;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -17,6 +20,9 @@ import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.web.context.WebApplicationContext;
 
+import java.util.List;
+
+import static org.springframework.test.util.AssertionErrors.assertTrue;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
@@ -30,6 +36,8 @@ public class DeleteShipTest {
     private WebApplicationContext context;
     private MockMvc mockMvc;
 
+    private TestsHelper testsHelper = new TestsHelper();
+
     @Before
     public void setup() {
         mockMvc = MockMvcBuilders.webAppContextSetup(context).build();
@@ -71,6 +79,39 @@ public class DeleteShipTest {
                 .andExpect(status().isNotFound());
     }
 
+    //test5
+    @Test
+    public void deleteShipsWithoutFiltersTest() throws Exception {
+        mockMvc.perform(delete("/rest/ships")
+                .accept(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(status().isBadRequest());
+    }
+
+    //test6
+    @Test
+    public void deleteShipsByCriteriaTest() throws Exception {
+        List<ShipInfoTest> expected = testsHelper.getShipInfosByShipType(ShipType.MILITARY, testsHelper.getAllShips());
+
+        String deleted = mockMvc.perform(delete("/rest/ships?shipType=MILITARY")
+                .accept(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        assertTrue("При запросе DELETE /rest/ships с параметром shipType возвращается не правильное количество удаленных кораблей.",
+                Integer.parseInt(deleted) == expected.size());
+
+        String count = mockMvc.perform(get("/rest/ships/count?shipType=MILITARY")
+                .accept(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        assertTrue("После запроса DELETE /rest/ships с параметром shipType корабли этого типа не должны оставаться.", Integer.parseInt(count) == 0);
+
+        mockMvc.perform(get("/rest/ships/" + expected.get(0).id)
+                .accept(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(status().isNotFound());
+    }
+
     @Autowired
     public void setContext(WebApplicationContext context) {
         this.context = context;
@@ -0,0 +1,96 @@
+package com.space.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.space.config.MyWebAppInit;
+import com.space.config.WebConfig;
+import com.space.controller.utils.ShipInfoTest;
+import com.space.controller.utils.TestDataSourceConfig;
+import com.space.controller.utils.TestsHelper;
+import com.space.model.ShipType;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.context.jdbc.SqlConfig;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.springframework.test.util.AssertionErrors.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = {TestDataSourceConfig.class, MyWebAppInit.class, WebConfig.class})
+@WebAppConfiguration
+@Sql(scripts = "classpath:test.sql", config = @SqlConfig(encoding = "UTF-8"))
+public class ExportShipsTest {
+
+    private WebApplicationContext context;
+    private MockMvc mockMvc;
+
+    private TestsHelper testsHelper = new TestsHelper();
+    private ObjectMapper mapper = new ObjectMapper();
+
+    @Before
+    public void setup() {
+        mockMvc = MockMvcBuilders.webAppContextSetup(context).build();
+    }
+
+    private List<ShipInfoTest> export(String query) throws Exception {
+        MvcResult result = mockMvc.perform(get(query))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("application/x-ndjson"))
+                .andReturn();
+
+        List<ShipInfoTest> ships = new ArrayList<>();
+        for (String line : result.getResponse().getContentAsString().split("\n")) {
+            if (!line.isEmpty()) {
+                ships.add(mapper.readValue(line, ShipInfoTest.class));
+            }
+        }
+        return ships;
+    }
+
+    //test1
+    @Test
+    public void exportAllOrderedById() throws Exception {
+        List<ShipInfoTest> actual = export("/rest/ships/export");
+        List<ShipInfoTest> expected = testsHelper.getShipInfosByOrder(ShipOrder.ID,
+                new ArrayList<>(testsHelper.getAllShips()));
+
+        assertTrue("Возвращается не правильный результат при запросе GET /rest/ships/export без параметров.", actual.equals(expected));
+    }
+
+    //test2
+    @Test
+    public void exportWithFiltersShipTypeOrderRating() throws Exception {
+        List<ShipInfoTest> actual = export("/rest/ships/export?shipType=TRANSPORT&order=RATING");
+        List<ShipInfoTest> expected = testsHelper.getShipInfosByOrder(ShipOrder.RATING,
+                testsHelper.getShipInfosByShipType(ShipType.TRANSPORT, testsHelper.getAllShips()));
+
+        assertTrue("Возвращается не правильный результат при запросе GET /rest/ships/export с параметрами shipType и order=RATING.", actual.equals(expected));
+    }
+
+    //test3
+    @Test
+    public void exportWithoutMatchesIsEmpty() throws Exception {
+        List<ShipInfoTest> actual = export("/rest/ships/export?name=noSuchShipName");
+
+        assertTrue("Возвращается не пустой результат при запросе GET /rest/ships/export без совпадений.", actual.isEmpty());
+    }
+
+    @Autowired
+    public void setContext(WebApplicationContext context) {
+        this.context = context;
+    }
+}
@@ -0,0 +1,109 @@
+package com.space.controller;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.space.config.MyWebAppInit;
+import com.space.config.WebConfig;
+import com.space.controller.utils.ShipInfoTest;
+import com.space.controller.utils.TestDataSourceConfig;
+import com.space.controller.utils.TestsHelper;
+import com.space.model.ShipType;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.context.jdbc.SqlConfig;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.springframework.test.util.AssertionErrors.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = {TestDataSourceConfig.class, MyWebAppInit.class, WebConfig.class})
+@WebAppConfiguration
+@Sql(scripts = "classpath:test.sql", config = @SqlConfig(encoding = "UTF-8"))
+public class GetAllByCursorTest {
+
+    @Autowired
+    private WebApplicationContext context;
+    private MockMvc mockMvc;
+
+    private TestsHelper testsHelper = new TestsHelper();
+    private ObjectMapper mapper = new ObjectMapper();
+    private TypeReference<List<ShipInfoTest>> typeReference = new TypeReference<List<ShipInfoTest>>() {
+    };
+
+    @Before
+    public void setup() {
+        mockMvc = MockMvcBuilders.webAppContextSetup(context).build();
+    }
+
+    private List<ShipInfoTest> walkAllPages(String query) throws Exception {
+        List<ShipInfoTest> ships = new ArrayList<>();
+        String cursor = "";
+        while (cursor != null) {
+            MvcResult result = mockMvc.perform(get(query + "&cursor=" + cursor)
+                    .accept(MediaType.APPLICATION_JSON_UTF8))
+                    .andExpect(status().isOk())
+                    .andReturn();
+            ships.addAll(mapper.readValue(result.getResponse().getContentAsString(), typeReference));
+            cursor = result.getResponse().getHeader(ShipsController.NEXT_CURSOR_HEADER);
+        }
+        return ships;
+    }
+
+    //test1
+    @Test
+    public void cursorPagesCoverAllShipsOrderedById() throws Exception {
+        List<ShipInfoTest> actual = walkAllPages("/rest/ships?pageSize=7");
+        List<ShipInfoTest> expected = testsHelper.getShipInfosByOrder(ShipOrder.ID,
+                new ArrayList<>(testsHelper.getAllShips()));
+
+        assertTrue("Возвращается не правильный результат при постраничном обходе GET /rest/ships с параметром cursor.", actual.equals(expected));
+    }
+
+    //test2
+    @Test
+    public void cursorPagesAreStableForRatingWithTies() throws Exception {
+        List<ShipInfoTest> actual = walkAllPages("/rest/ships?order=RATING&pageSize=4");
+        List<ShipInfoTest> expected = testsHelper.getShipInfosByOrder(ShipOrder.RATING,
+                new ArrayList<>(testsHelper.getAllShips()));
+
+        assertTrue("Возвращается не правильный результат при постраничном обходе GET /rest/ships с параметрами order=RATING и cursor.", actual.equals(expected));
+    }
+
+    //test3
+    @Test
+    public void cursorPagesWithFiltersShipTypeOrderSpeed() throws Exception {
+        List<ShipInfoTest> actual = walkAllPages("/rest/ships?shipType=MILITARY&order=SPEED&pageSize=3");
+        List<ShipInfoTest> expected = testsHelper.getShipInfosByOrder(ShipOrder.SPEED,
+                testsHelper.getShipInfosByShipType(ShipType.MILITARY, testsHelper.getAllShips()));
+
+        assertTrue("Возвращается не правильный результат при постраничном обходе GET /rest/ships с параметрами shipType, order=SPEED и cursor.", actual.equals(expected));
+    }
+
+    //test4
+    @Test
+    public void cursorFromAnotherOrderIsBadRequest() throws Exception {
+        MvcResult result = mockMvc.perform(get("/rest/ships?order=ID&pageSize=3&cursor=")
+                .accept(MediaType.APPLICATION_JSON_UTF8))
+                .andReturn();
+        String cursor = result.getResponse().getHeader(ShipsController.NEXT_CURSOR_HEADER);
+
+        mockMvc.perform(get("/rest/ships?order=SPEED&pageSize=3&cursor=" + cursor)
+                .accept(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(status().isBadRequest());
+    }
+}
@@ -10,6 +10,7 @@ import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.jdbc.Sql;
@@ -23,6 +24,7 @@ import org.springframework.web.context.WebApplicationContext;
 
 import static org.springframework.test.util.AssertionErrors.assertTrue;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @RunWith(SpringJUnit4ClassRunner.class)
@@ -78,6 +80,82 @@ public class GetShipTest {
         assertTrue("Вернулся неправильный объект при запросе GET /rest/ships/{id}", actual.equals(expected));
     }
 
+    //test5
+    @Test
+    public void getShipNotModifiedTest() throws Exception {
+        String etag = mockMvc.perform(get("/rest/ships/14")
+                .accept(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertTrue("GET /rest/ships/{id} не вернул ETag", etag != null);
+
+        String body = mockMvc.perform(get("/rest/ships/14")
+                .header(HttpHeaders.IF_NONE_MATCH, etag)
+                .accept(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(status().isNotModified())
+                .andReturn().getResponse().getContentAsString();
+        assertTrue("Ответ 304 не должен содержать тело", body.isEmpty());
+    }
+
+    //test6
+    @Test
+    public void getShipEtagChangesOnUpdateTest() throws Exception {
+        String etag14 = mockMvc.perform(get("/rest/ships/14"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        String etag15 = mockMvc.perform(get("/rest/ships/15"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        String listEtag = mockMvc.perform(get("/rest/ships"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(post("/rest/ships/14")
+                .contentType(MediaType.APPLICATION_JSON_UTF8)
+                .content("{\"name\":\"Renamed\"}"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/rest/ships/14")
+                .header(HttpHeaders.IF_NONE_MATCH, etag14))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/rest/ships")
+                .header(HttpHeaders.IF_NONE_MATCH, listEtag))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/rest/ships/15")
+                .header(HttpHeaders.IF_NONE_MATCH, etag15))
+                .andExpect(status().isNotModified());
+    }
+
+    //test7
+    @Test
+    public void getCountNotModifiedTest() throws Exception {
+        String etag = mockMvc.perform(get("/rest/ships/count"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/rest/ships/count")
+                .header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+    }
+
+    //test8
+    @Test
+    public void getGzipEtagNotModifiedTest() throws Exception {
+        String etag = mockMvc.perform(get("/rest/ships"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        String gzipEtag = etag.substring(0, etag.length() - 1) + "-gzip\"";
+
+        String returned = mockMvc.perform(get("/rest/ships")
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+                .header(HttpHeaders.IF_NONE_MATCH, gzipEtag))
+                .andExpect(status().isNotModified())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertTrue("Ответ 304 на сжатое тело должен вернуть ETag сжатого тела", gzipEtag.equals(returned));
+
+        mockMvc.perform(get("/rest/ships")
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip;q=0")
+                .header(HttpHeaders.IF_NONE_MATCH, gzipEtag))
+                .andExpect(status().isOk());
+    }
+
     @Autowired
     public void setContext(WebApplicationContext context) {
         this.context = context;
@@ -0,0 +1,105 @@
+package com.space.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.space.config.MyWebAppInit;
+import com.space.config.WebConfig;
+import com.space.controller.utils.TestDataSourceConfig;
+import com.space.controller.utils.TestsHelper;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.context.jdbc.SqlConfig;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import static org.springframework.test.util.AssertionErrors.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = {TestDataSourceConfig.class, MyWebAppInit.class, WebConfig.class})
+@WebAppConfiguration
+@Sql(scripts = "classpath:test.sql", config = @SqlConfig(encoding = "UTF-8"))
+public class ImportShipsTest {
+
+    private WebApplicationContext context;
+    private MockMvc mockMvc;
+
+    private ObjectMapper mapper = new ObjectMapper();
+
+    @Before
+    public void setup() {
+        mockMvc = MockMvcBuilders.webAppContextSetup(context).build();
+    }
+
+    private long count() throws Exception {
+        return Long.parseLong(mockMvc.perform(get("/rest/ships/count"))
+                .andReturn().getResponse().getContentAsString());
+    }
+
+    //test1
+    @Test
+    public void importNdjsonTest() throws Exception {
+        String body = TestsHelper.NORMAL_JSON + "\n" +
+                TestsHelper.NO_SPEED_JSON + "\n" +
+                "\n" +
+                "not json\n" +
+                TestsHelper.IS_USED_TRUE_JSON + "\n";
+
+        String contentAsString = mockMvc.perform(post("/rest/ships/import?format=NDJSON")
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .content(body))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        JsonNode report = mapper.readTree(contentAsString);
+
+        assertTrue("Возвращается не правильный отчёт при импорте NDJSON.",
+                report.get("rows").asLong() == 4
+                        && report.get("imported").asLong() == 2
+                        && report.get("rejected").asLong() == 2
+                        && report.get("rejects").get(0).get("line").asLong() == 4
+                        && report.get("rejects").get(1).get("line").asLong() == 2);
+        assertTrue("Импортированные корабли не найдены.", count() == 42);
+    }
+
+    //test2
+    @Test
+    public void importCsvTest() throws Exception {
+        String body = "name,planet,shipType,prodDate,isUsed,speed,crewSize\n" +
+                "\"Nebula, Mk II\",Earth,MILITARY,32998274577071,false,0.8,14\n" +
+                "Ghost,Mars,TRANSPORT,32998274577071,true,0.5,\n" +
+                "Wraith,Venus,UNKNOWN,32998274577071,true,0.5,10\n" +
+                "Shade,Venus,MERCHANT,32998274577071,true,0.5,10\n";
+
+        String contentAsString = mockMvc.perform(post("/rest/ships/import?format=CSV")
+                .contentType(MediaType.TEXT_PLAIN)
+                .content(body))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        JsonNode report = mapper.readTree(contentAsString);
+
+        assertTrue("Возвращается не правильный отчёт при импорте CSV.",
+                report.get("rows").asLong() == 4
+                        && report.get("imported").asLong() == 2
+                        && report.get("rejected").asLong() == 2);
+        assertTrue("Импортированные корабли не найдены.", count() == 42);
+
+        String ship = mockMvc.perform(get("/rest/ships/41"))
+                .andReturn().getResponse().getContentAsString();
+        assertTrue("Название корабля из CSV прочитано не правильно.", mapper.readTree(ship).get("name").asText().equals("Nebula, Mk II"));
+    }
+
+    @Autowired
+    public void setContext(WebApplicationContext context) {
+        this.context = context;
+    }
+}
@@ -0,0 +1,94 @@
+package com.space.controller;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.space.config.MyWebAppInit;
+import com.space.config.WebConfig;
+import com.space.controller.utils.ShipInfoTest;
+import com.space.controller.utils.TestDataSourceConfig;
+import com.space.controller.utils.TestsHelper;
+import com.space.model.ShipType;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.context.jdbc.SqlConfig;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.util.List;
+
+import static org.springframework.test.util.AssertionErrors.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = {TestDataSourceConfig.class, MyWebAppInit.class, WebConfig.class})
+@WebAppConfiguration
+@Sql(scripts = "classpath:test.sql", config = @SqlConfig(encoding = "UTF-8"))
+public class SearchShipsTest {
+
+    @Autowired
+    private WebApplicationContext context;
+    private MockMvc mockMvc;
+
+    private TestsHelper testsHelper = new TestsHelper();
+    private ObjectMapper mapper = new ObjectMapper();
+    private TypeReference<List<ShipInfoTest>> typeReference = new TypeReference<List<ShipInfoTest>>() {
+    };
+
+    @Before
+    public void setup() {
+        mockMvc = MockMvcBuilders.webAppContextSetup(context).build();
+    }
+
+    //test1
+    @Test
+    public void searchWithoutFiltersReturnsFirstPageAndTotal() throws Exception {
+        ResultActions resultActions = mockMvc.perform(get("/rest/ships/search")
+                .accept(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(status().isOk());
+
+        MvcResult result = resultActions.andReturn();
+        JsonNode page = mapper.readTree(result.getResponse().getContentAsString());
+
+        List<ShipInfoTest> actual = mapper.readValue(page.get("content").traverse(), typeReference);
+        List<ShipInfoTest> expected = testsHelper.getShipInfosByPage(0, 3,
+                testsHelper.getAllShips());
+
+        assertTrue("Возвращается не правильный результат при запросе GET /rest/ships/search.", actual.equals(expected));
+        assertTrue("Возвращается не правильное количество кораблей при запросе GET /rest/ships/search.",
+                page.get("totalElements").asLong() == testsHelper.getAllShips().size());
+    }
+
+    //test2
+    @Test
+    public void searchWithFiltersShipTypePageNumberOrder() throws Exception {
+        ResultActions resultActions = mockMvc.perform(get("/rest/ships/search?shipType=MERCHANT&pageNumber=1&pageSize=4&order=SPEED")
+                .accept(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(status().isOk());
+
+        MvcResult result = resultActions.andReturn();
+        JsonNode page = mapper.readTree(result.getResponse().getContentAsString());
+
+        List<ShipInfoTest> filtered = testsHelper.getShipInfosByShipType(ShipType.MERCHANT, testsHelper.getAllShips());
+        List<ShipInfoTest> actual = mapper.readValue(page.get("content").traverse(), typeReference);
+        List<ShipInfoTest> expected = testsHelper.getShipInfosByPage(1, 4,
+                testsHelper.getShipInfosByOrder(ShipOrder.SPEED, filtered));
+
+        assertTrue("Возвращается не правильный результат при запросе GET /rest/ships/search с параметрами shipType, pageNumber и order.", actual.equals(expected));
+        assertTrue("Возвращается не правильное количество кораблей при запросе GET /rest/ships/search с параметром shipType.",
+                page.get("totalElements").asLong() == filtered.size());
+        assertTrue("Возвращаются не правильные параметры страницы при запросе GET /rest/ships/search.",
+                page.get("pageNumber").asInt() == 1 && page.get("pageSize").asInt() == 4);
+    }
+}
@@ -0,0 +1,101 @@
+package com.space.controller;
+
+import com.space.config.MyWebAppInit;
+import com.space.config.WebConfig;
+import com.space.controller.utils.TestDataSourceConfig;
+import com.space.controller.utils.TestsHelper;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.context.jdbc.SqlConfig;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import static org.springframework.test.util.AssertionErrors.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = {TestDataSourceConfig.class, MyWebAppInit.class, WebConfig.class})
+@WebAppConfiguration
+@Sql(scripts = "classpath:test.sql", config = @SqlConfig(encoding = "UTF-8"))
+public class ShipChangesTest {
+
+    private WebApplicationContext context;
+    private MockMvc mockMvc;
+
+    @Before
+    public void setup() {
+        mockMvc = MockMvcBuilders.webAppContextSetup(context).build();
+    }
+
+    private static String awaitContent(MockHttpServletResponse response, String expected) throws Exception {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!response.getContentAsString().contains(expected) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        return response.getContentAsString();
+    }
+
+    //test1
+    @Test
+    public void changesStreamsUpdatesAndDeletes() throws Exception {
+        MvcResult feed = mockMvc.perform(get("/rest/ships/changes")
+                .accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        awaitContent(feed.getResponse(), "event:resync");
+
+        mockMvc.perform(post("/rest/ships/14")
+                .contentType(MediaType.APPLICATION_JSON_UTF8)
+                .content("{\"name\":\"Renamed\"}"))
+                .andExpect(status().isOk());
+        mockMvc.perform(delete("/rest/ships/15"))
+                .andExpect(status().isOk());
+
+        String content = awaitContent(feed.getResponse(), "event:deleted");
+        assertTrue("GET /rest/ships/changes не прислал событие обновления: " + content,
+                content.contains("event:updated") && content.contains("\"name\":\"Renamed\""));
+        assertTrue("GET /rest/ships/changes не прислал событие удаления: " + content,
+                content.contains("data:{\"id\":15}"));
+    }
+
+    //test2
+    @Test
+    public void changesAppliesFilters() throws Exception {
+        MvcResult feed = mockMvc.perform(get("/rest/ships/changes?planet=NoSuchPlanet")
+                .accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        awaitContent(feed.getResponse(), "event:resync");
+
+        mockMvc.perform(post("/rest/ships")
+                .contentType(MediaType.APPLICATION_JSON_UTF8)
+                .accept(MediaType.APPLICATION_JSON_UTF8)
+                .content(TestsHelper.NORMAL_JSON))
+                .andExpect(status().isOk());
+        mockMvc.perform(delete("/rest/ships/15"))
+                .andExpect(status().isOk());
+
+        String content = awaitContent(feed.getResponse(), "event:deleted");
+        assertTrue("GET /rest/ships/changes прислал корабль, не подходящий под фильтр: " + content,
+                !content.contains("event:created") && content.contains("event:deleted"));
+    }
+
+    @Autowired
+    public void setContext(WebApplicationContext context) {
+        this.context = context;
+    }
+}
@@ -0,0 +1,114 @@
+package com.space.controller;
+
+import com.space.service.VirtualThreads;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// closed-loop load against a running server: every client sends its next GET as soon as the previous
+// one answered, cycling through the given paths.
+// java -cp target/test-classes:target/classes:<dependency classpath> com.space.controller.ShipLoadRunner \
+//     http://localhost:8080 1000 60 "/rest/ships?pageSize=20,/rest/ships/count,/rest/ships/1"
+// To compare execution modes, run it at 1000 and at 10000 clients against the server started once
+// with platform threads and once with -Dcosmoport.virtualThreads=true (plus a virtual-thread
+// connector executor in the container), and compare throughput, p50/p99 and 503s, and
+// /rest/stats/threads for pinning. The clients themselves run on virtual threads when the JDK has
+// them, so 10000 of them do not need 10000 platform threads on the load side
+public class ShipLoadRunner {
+    private static final int MAX_MILLIS = 10_000;
+
+    private final AtomicLongArray latencyMillis = new AtomicLongArray(MAX_MILLIS + 1);
+    private final LongAdder ok = new LongAdder();
+    private final LongAdder notModified = new LongAdder();
+    private final LongAdder unavailable = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+
+    public static void main(String[] args) throws Exception {
+        String baseUrl = args.length > 0 ? args[0] : "http://localhost:8080";
+        int clients = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 60;
+        String[] paths = (args.length > 3 ? args[3] : "/rest/ships?pageSize=20,/rest/ships/count,/rest/ships/1").split(",");
+
+        // keep one connection per client instead of the default five per host
+        System.setProperty("http.maxConnections", Integer.toString(clients));
+        new ShipLoadRunner().run(baseUrl, clients, seconds, paths);
+    }
+
+    private void run(String baseUrl, int clients, int seconds, String[] paths) throws InterruptedException {
+        ExecutorService executor = VirtualThreads.AVAILABLE
+                ? VirtualThreads.newThreadPerTaskExecutor("load-")
+                : Executors.newFixedThreadPool(clients);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        long start = System.nanoTime();
+        for (int client = 0; client < clients; client++) {
+            int first = client;
+            executor.execute(() -> {
+                for (int i = first; System.nanoTime() < deadline; i++) {
+                    request(baseUrl + paths[i % paths.length]);
+                }
+            });
+        }
+        executor.shutdown();
+        executor.awaitTermination(seconds + 60, TimeUnit.SECONDS);
+        double elapsed = (System.nanoTime() - start) / 1e9;
+
+        long total = ok.sum() + notModified.sum() + unavailable.sum() + errors.sum();
+        System.out.printf("%s clients=%d %.0f req/s ok=%d notModified=%d 503=%d errors=%d p50=%dms p99=%dms p999=%dms%n",
+                VirtualThreads.AVAILABLE ? "virtual-clients" : "platform-clients", clients, total / elapsed,
+                ok.sum(), notModified.sum(), unavailable.sum(), errors.sum(),
+                percentile(0.5), percentile(0.99), percentile(0.999));
+    }
+
+    private void request(String url) {
+        long start = System.nanoTime();
+        try {
+            HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+            connection.setConnectTimeout(30_000);
+            connection.setReadTimeout(30_000);
+            int status = connection.getResponseCode();
+            InputStream body = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+            if (body != null) {
+                // drained so the connection goes back to the keep-alive cache
+                byte[] buffer = new byte[8192];
+                while (body.read(buffer) >= 0) {
+                }
+                body.close();
+            }
+            if (status == 200) {
+                ok.increment();
+            } else if (status == 304) {
+                notModified.increment();
+            } else if (status == 503) {
+                unavailable.increment();
+            } else {
+                errors.increment();
+            }
+        } catch (IOException e) {
+            errors.increment();
+        }
+        latencyMillis.incrementAndGet((int) Math.min(MAX_MILLIS, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)));
+    }
+
+    private long percentile(double fraction) {
+        long total = 0;
+        for (int i = 0; i <= MAX_MILLIS; i++) {
+            total += latencyMillis.get(i);
+        }
+        long rank = (long) Math.ceil(total * fraction);
+        long seen = 0;
+        for (int i = 0; i <= MAX_MILLIS; i++) {
+            seen += latencyMillis.get(i);
+            if (seen >= rank && seen > 0) {
+                return i;
+            }
+        }
+        return 0;
+    }
+}
@@ -23,6 +23,7 @@ import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.web.context.WebApplicationContext;
 
 import static org.springframework.test.util.AssertionErrors.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -214,6 +215,50 @@ public class UpdateShipTest {
         assertTrue("При запросе POST /rest/ships/{id} корабль должен обновляться и рейтинг пересчитываться", actual.equals(expected));
     }
 
+    //test12
+    @Test
+    public void updateShipNameKeepsRatingTest() throws Exception {
+        ShipInfoTest shipInfoTest = testsHelper.getShipInfosById(9);
+        ShipInfoTest expected = new ShipInfoTest(shipInfoTest.id, "TestName", shipInfoTest.planet, shipInfoTest.shipType, shipInfoTest.prodDate,
+                shipInfoTest.isUsed, shipInfoTest.speed, shipInfoTest.crewSize, shipInfoTest.rating);
+
+        mockMvc.perform(post("/rest/ships/" + shipInfoTest.id)
+                .contentType(MediaType.APPLICATION_JSON_UTF8)
+                .accept(MediaType.APPLICATION_JSON_UTF8)
+                .content("{\"name\": \"TestName\"}"))
+                .andExpect(status().isOk());
+
+        String contentAsString = mockMvc.perform(get("/rest/ships/" + shipInfoTest.id)
+                .accept(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        ShipInfoTest actual = mapper.readValue(contentAsString, ShipInfoTest.class);
+
+        assertTrue("При запросе POST /rest/ships/{id} должны сохраняться только переданные поля", actual.equals(expected));
+    }
+
+    //test13
+    @Test
+    public void updateShipSpeedStoresRecalculatedRatingTest() throws Exception {
+        ShipInfoTest shipInfoTest = testsHelper.getShipInfosById(14);
+
+        ResultActions resultActions = mockMvc.perform(post("/rest/ships/" + shipInfoTest.id)
+                .contentType(MediaType.APPLICATION_JSON_UTF8)
+                .accept(MediaType.APPLICATION_JSON_UTF8)
+                .content("{\"speed\": 0.123}"))
+                .andExpect(status().isOk());
+        ShipInfoTest updated = mapper.readValue(resultActions.andReturn().getResponse().getContentAsString(), ShipInfoTest.class);
+
+        String contentAsString = mockMvc.perform(get("/rest/ships/" + shipInfoTest.id)
+                .accept(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        ShipInfoTest actual = mapper.readValue(contentAsString, ShipInfoTest.class);
+
+        assertTrue("При запросе POST /rest/ships/{id} скорость должна округляться", actual.speed == 0.12);
+        assertTrue("При запросе POST /rest/ships/{id} сохраненный рейтинг должен совпадать с возвращенным", actual.rating.equals(updated.rating));
+        assertTrue("При запросе POST /rest/ships/{id} рейтинг должен пересчитываться", !actual.rating.equals(shipInfoTest.rating));
+    }
 
     @Autowired
     public void setContext(WebApplicationContext context) {
@@ -1,11 +1,12 @@
 package com.space.controller.utils;
 
+import com.space.config.PoolMetrics;
+import com.zaxxer.hikari.HikariDataSource;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.dao.annotation.PersistenceExceptionTranslationPostProcessor;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
-import org.springframework.jdbc.datasource.DriverManagerDataSource;
 import org.springframework.orm.jpa.JpaTransactionManager;
 import org.springframework.orm.jpa.JpaVendorAdapter;
 import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
@@ -36,16 +37,41 @@ public class TestDataSourceConfig {
         return em;
     }
 
-    @Bean
+    @Bean(destroyMethod = "close")
     public DataSource dataSource() {
-        DriverManagerDataSource dataSource = new DriverManagerDataSource();
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setPoolName("cosmoport-test");
         dataSource.setDriverClassName("com.mysql.cj.jdbc.Driver");
-        dataSource.setUrl("jdbc:mysql://localhost:3306/test?serverTimezone=UTC");
+        dataSource.setJdbcUrl("jdbc:mysql://localhost:3306/test?serverTimezone=UTC");
         dataSource.setUsername("root");
         dataSource.setPassword("root");
+
+        dataSource.setMinimumIdle(1);
+        dataSource.setMaximumPoolSize(4);
+        dataSource.setConnectionTimeout(5_000);
+        dataSource.setValidationTimeout(1_000);
+        dataSource.setIdleTimeout(300_000);
+        dataSource.setMaxLifetime(1_500_000);
+        dataSource.setLeakDetectionThreshold(30_000);
+
+        dataSource.addDataSourceProperty("cachePrepStmts", "true");
+        dataSource.addDataSourceProperty("prepStmtCacheSize", "250");
+        dataSource.addDataSourceProperty("prepStmtCacheSqlLimit", "2048");
+        dataSource.addDataSourceProperty("useServerPrepStmts", "true");
+        dataSource.addDataSourceProperty("useLocalSessionState", "true");
+        dataSource.addDataSourceProperty("rewriteBatchedStatements", "true");
+        dataSource.addDataSourceProperty("useCursorFetch", "true");
+
+        dataSource.setMetricsTrackerFactory(poolMetrics());
+        poolMetrics().bind(dataSource);
         return dataSource;
     }
 
+    @Bean
+    public PoolMetrics poolMetrics() {
+        return new PoolMetrics();
+    }
+
 
     @Bean
     public PlatformTransactionManager transactionManager(EntityManagerFactory emf) {
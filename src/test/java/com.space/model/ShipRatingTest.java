@@ -0,0 +1,30 @@
+package com.space.model;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class ShipRatingTest {
+
+    @Test
+    public void defaultsKeepTheOriginalFormula() {
+        assertEquals(Math.round(80 * 0.82 * 0.5 / (3019 - 2995 + 1) * 100) / 100.0, ShipRating.compute(0.82, true, 2995), 0);
+        assertEquals(Math.round(80 * 0.82 / (3019 - 2995 + 1) * 100) / 100.0, ShipRating.compute(0.82, false, 2995), 0);
+        ShipRating.checkConfiguration();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void referenceYearBeforeTheLatestProductionYearIsRejected() {
+        ShipRating.check(3018, 80, 0.5, 1);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void nonPositiveSpeedWeightIsRejected() {
+        ShipRating.check(3019, 0, 0.5, 1);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void nonPositiveCoefficientIsRejected() {
+        ShipRating.check(3019, 80, 0.5, Double.NaN);
+    }
+}
@@ -0,0 +1,220 @@
+package com.space.service;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class MappedJournalTest {
+    private static final int SEGMENT_BYTES = 1024;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final List<MappedJournal> opened = new ArrayList<>();
+
+    @After
+    public void close() {
+        opened.forEach(MappedJournal::close);
+    }
+
+    private MappedJournal open(MappedJournal.Durability durability) throws IOException {
+        MappedJournal journal = new MappedJournal(folder.getRoot().toPath(), SEGMENT_BYTES, durability, 1);
+        opened.add(journal);
+        return journal;
+    }
+
+    private static ByteBuffer record(int i) {
+        return ByteBuffer.wrap(("record-" + i).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static List<String> readAll(MappedJournal journal, long offset) {
+        List<String> records = new ArrayList<>();
+        MappedJournal.Reader reader = journal.reader(offset);
+        for (MappedJournal.Entry entry = reader.next(); entry != null; entry = reader.next()) {
+            ByteBuffer payload = entry.getPayload();
+            byte[] bytes = new byte[payload.remaining()];
+            payload.get(bytes);
+            records.add(new String(bytes, StandardCharsets.UTF_8));
+        }
+        return records;
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(folder.getRoot().toPath())) {
+            return files.sorted().collect(Collectors.toList());
+        }
+    }
+
+    private static void truncate(Path file, long size) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(size);
+        }
+    }
+
+    @Test
+    public void replaysAcrossSegmentsFromAnyOffset() throws IOException {
+        MappedJournal journal = open(MappedJournal.Durability.NONE);
+        long[] offsets = new long[200];
+        for (int i = 0; i < offsets.length; i++) {
+            offsets[i] = journal.append(record(i));
+        }
+
+        assertTrue(segments().size() > 1);
+        List<String> all = readAll(journal, 0);
+        assertEquals(200, all.size());
+        assertEquals("record-0", all.get(0));
+        assertEquals("record-199", all.get(199));
+        assertEquals("record-150", readAll(journal, offsets[150]).get(0));
+        assertEquals(0, readAll(journal, journal.getCommittedOffset()).size());
+    }
+
+    @Test
+    public void reopeningContinuesAfterTheLastRecord() throws IOException {
+        MappedJournal journal = open(MappedJournal.Durability.SYNC);
+        for (int i = 0; i < 100; i++) {
+            journal.append(record(i));
+        }
+        long committed = journal.getCommittedOffset();
+        journal.close();
+
+        MappedJournal reopened = open(MappedJournal.Durability.SYNC);
+        assertEquals(committed, reopened.getCommittedOffset());
+        assertEquals(committed, reopened.append(record(100)));
+        List<String> all = readAll(reopened, 0);
+        assertEquals(101, all.size());
+        assertEquals("record-100", all.get(100));
+    }
+
+    @Test
+    public void truncatedLastSegmentIsCutAtTheLastCompleteRecord() throws IOException {
+        MappedJournal journal = open(MappedJournal.Durability.SYNC);
+        journal.append(record(0));
+        journal.append(record(1));
+        long third = journal.append(record(2));
+        journal.close();
+
+        // the copy ends in the middle of the third record's payload
+        truncate(segments().get(0), third + MappedJournal.HEADER_BYTES + 3);
+
+        MappedJournal reopened = open(MappedJournal.Durability.SYNC);
+        assertEquals(third, reopened.getCommittedOffset());
+        assertEquals(third, reopened.append(record(3)));
+        List<String> all = readAll(reopened, 0);
+        assertEquals("[record-0, record-1, record-3]", all.toString());
+    }
+
+    @Test
+    public void corruptedTailIsDiscarded() throws IOException {
+        MappedJournal journal = open(MappedJournal.Durability.SYNC);
+        journal.append(record(0));
+        long second = journal.append(record(1));
+        journal.close();
+
+        try (FileChannel channel = FileChannel.open(segments().get(0), StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{'X'}), second + MappedJournal.HEADER_BYTES);
+        }
+
+        MappedJournal reopened = open(MappedJournal.Durability.SYNC);
+        assertEquals("[record-0]", readAll(reopened, 0).toString());
+        assertTrue((Long) reopened.snapshot(new LinkedHashMap<>()).get("recoveredBytes") > 0);
+        reopened.append(record(2));
+        assertEquals("[record-0, record-2]", readAll(reopened, 0).toString());
+    }
+
+    @Test
+    public void truncatedOlderSegmentIsSkippedAsAGap() throws IOException {
+        MappedJournal journal = open(MappedJournal.Durability.SYNC);
+        for (int i = 0; i < 200; i++) {
+            journal.append(record(i));
+        }
+        journal.close();
+        truncate(segments().get(0), 100);
+
+        MappedJournal reopened = open(MappedJournal.Durability.SYNC);
+        MappedJournal.Reader reader = reopened.reader(0);
+        int read = 0;
+        while (reader.next() != null) {
+            read++;
+        }
+        assertEquals(1, reader.getGaps());
+        assertTrue(read > 0 && read < 200);
+    }
+
+    @Test
+    public void tailingReaderWaitsForAppends() throws Exception {
+        MappedJournal journal = open(MappedJournal.Durability.NONE);
+        MappedJournal.Reader reader = journal.reader(journal.getCommittedOffset());
+        assertNull(reader.next());
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<MappedJournal.Entry> polled = executor.submit(() -> reader.poll(5, TimeUnit.SECONDS));
+            Thread.sleep(50);
+            long offset = journal.append(record(7));
+            assertEquals(offset, polled.get(5, TimeUnit.SECONDS).getOffset());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void groupCommitSharesForcesBetweenWriters() throws Exception {
+        MappedJournal journal = open(MappedJournal.Durability.GROUP);
+        ExecutorService writers = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Long>> appended = new ArrayList<>();
+            for (int i = 0; i < 80; i++) {
+                int n = i;
+                appended.add(writers.submit(() -> journal.append(record(n))));
+            }
+            for (Future<Long> future : appended) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            writers.shutdownNow();
+        }
+
+        Map<String, Object> stats = journal.snapshot(new LinkedHashMap<>());
+        assertEquals(journal.getCommittedOffset(), stats.get("flushedOffset"));
+        assertTrue("forces: " + stats.get("forces"), (Long) stats.get("forces") < 80);
+    }
+
+    @Test
+    public void writtenRecordsShareOneFlush() throws IOException {
+        MappedJournal journal = open(MappedJournal.Durability.SYNC);
+        for (int i = 0; i < 10; i++) {
+            journal.write(record(i));
+        }
+        assertEquals(10, readAll(journal, 0).size());
+        assertEquals(0L, journal.snapshot(new LinkedHashMap<>()).get("forces"));
+
+        journal.flush();
+
+        Map<String, Object> stats = journal.snapshot(new LinkedHashMap<>());
+        assertEquals(1L, stats.get("forces"));
+        assertEquals(journal.getCommittedOffset(), stats.get("flushedOffset"));
+    }
+}
@@ -0,0 +1,91 @@
+package com.space.service;
+
+import com.space.controller.utils.ShipInfoTest;
+import com.space.controller.utils.TestDataSourceConfig;
+import com.space.controller.utils.TestsHelper;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.context.jdbc.SqlConfig;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = {TestDataSourceConfig.class})
+@Sql(scripts = "classpath:test.sql", config = @SqlConfig(encoding = "UTF-8"))
+public class RatingRecomputeJobTest {
+
+    private RatingRecomputeJob job;
+    private ShipService service;
+    private JdbcTemplate jdbcTemplate;
+    private TestsHelper testsHelper = new TestsHelper();
+
+    @Before
+    public void setup() {
+        jdbcTemplate.update("update ship set rating = 0");
+    }
+
+    private double storedRating(long id) {
+        return service.getOne(id).get().getRating();
+    }
+
+    @Test
+    public void recomputeRestoresEveryRating() {
+        List<RecomputeProgress> reports = new ArrayList<>();
+        RecomputeProgress result = job.run(3, 4, 0, reports::add);
+
+        assertEquals(RecomputeProgress.State.DONE, result.getState());
+        assertEquals(testsHelper.getAllShips().size(), result.getRatingsUpdated());
+        assertEquals(result.getTotalChunks(), result.getCompletedChunks());
+        assertEquals(result.getToId(), result.getResumeFromId());
+        assertEquals(result.getTotalChunks() + 1, reports.size());
+        for (ShipInfoTest ship : testsHelper.getAllShips()) {
+            assertEquals(ship.rating, storedRating(ship.id), 0);
+        }
+    }
+
+    @Test
+    public void recomputeResumesFromId() {
+        RecomputeProgress result = job.run(2, 5, 21, progress -> {
+        });
+
+        assertEquals(RecomputeProgress.State.DONE, result.getState());
+        for (ShipInfoTest ship : testsHelper.getAllShips()) {
+            assertEquals(ship.id < 21 ? 0 : ship.rating, storedRating(ship.id), 0);
+        }
+    }
+
+    @Test
+    public void secondRunUpdatesNothing() {
+        job.run(4, 7, 0, progress -> {
+        });
+        RecomputeProgress result = job.run(4, 7, 0, progress -> {
+        });
+
+        assertEquals(0, result.getRatingsUpdated());
+    }
+
+    @Autowired
+    public void setJob(RatingRecomputeJob job) {
+        this.job = job;
+    }
+
+    @Autowired
+    public void setService(ShipService service) {
+        this.service = service;
+    }
+
+    @Autowired
+    public void setDataSource(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+}
@@ -0,0 +1,125 @@
+package com.space.service;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class SearchExecutorTest {
+
+    private final SearchExecutor executor = new SearchExecutor(1, 1, 1000, false);
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @After
+    public void shutdown() {
+        release.countDown();
+        executor.destroy();
+    }
+
+    private CompletableFuture<Integer> blockWorker() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CompletableFuture<Integer> future = executor.submit(() -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return 1;
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        return future;
+    }
+
+    @Test
+    public void fullQueueRejects() throws Exception {
+        blockWorker();
+        executor.submit(() -> 2);
+
+        CompletableFuture<Integer> rejected = executor.submit(() -> 3);
+
+        try {
+            rejected.get();
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof RejectedExecutionException);
+        }
+        assertEquals(1L, executor.snapshot().get("rejected"));
+    }
+
+    @Test
+    public void timedOutTaskIsSkipped() throws Exception {
+        CompletableFuture<Integer> running = blockWorker();
+        AtomicInteger ran = new AtomicInteger();
+        CompletableFuture<Integer> queued = executor.submit(ran::incrementAndGet);
+
+        executor.timedOut(queued);
+        release.countDown();
+
+        assertEquals(1, (int) running.get(5, TimeUnit.SECONDS));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!executor.snapshot().get("skippedAfterTimeout").equals(1L) && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(1L, executor.snapshot().get("skippedAfterTimeout"));
+        assertEquals(0, ran.get());
+        // the skipped task freed its queue slot, later submissions still run
+        CompletableFuture<Integer> after = executor.submit(() -> 4);
+        assertEquals(4, (int) after.get(5, TimeUnit.SECONDS));
+        assertEquals(1L, executor.snapshot().get("timedOut"));
+    }
+
+    @Test
+    public void failuresReachTheFuture() throws Exception {
+        CompletableFuture<Integer> future = executor.submit(() -> {
+            throw new IllegalStateException("boom");
+        });
+
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+        assertEquals(1L, executor.snapshot().get("failed"));
+    }
+
+    @Test
+    public void virtualModeKeepsTheSameLimits() throws Exception {
+        Assume.assumeTrue(VirtualThreads.AVAILABLE);
+        SearchExecutor virtual = new SearchExecutor(1, 1, 1000, true);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(1);
+        try {
+            CompletableFuture<Boolean> running = virtual.submit(() -> {
+                started.countDown();
+                try {
+                    done.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return VirtualThreads.isVirtual(Thread.currentThread());
+            });
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            CompletableFuture<Integer> queued = virtual.submit(() -> 2);
+
+            assertTrue(virtual.submit(() -> 3).isCompletedExceptionally());
+            done.countDown();
+            assertTrue(running.get(5, TimeUnit.SECONDS));
+            assertEquals(2, (int) queued.get(5, TimeUnit.SECONDS));
+        } finally {
+            done.countDown();
+            virtual.destroy();
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.space.service;
+
+import com.space.model.Ship;
+import com.space.model.ShipType;
+import com.space.model.ShipView;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ShipChangeFeedTest {
+
+    private final ShipChangeFeed feed = new ShipChangeFeed(4, 1);
+
+    @After
+    public void shutdown() {
+        feed.destroy();
+    }
+
+    private static Ship ship(long id, String planet) {
+        return new Ship(id, "Ship " + id, planet, ShipType.MERCHANT, new Date(33_000_000_000_000L), false, 0.5, 10, 1.5);
+    }
+
+    private static String describe(List<ShipEvent> events) {
+        return events.stream()
+                .map(event -> event.getType() + (event.getShipId() == null ? ":" + event.getReason() : ":" + event.getShipId()))
+                .collect(Collectors.joining(","));
+    }
+
+    private static void await(List<ShipEvent> events, int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (events.size() < count && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+    }
+
+    @Test
+    public void deliversMatchingEventsInOrder() throws Exception {
+        List<ShipEvent> events = new CopyOnWriteArrayList<>();
+        feed.subscribe(ShipChangeFeed.filter(null, "mar", null, null, null, null, null, null, null, null, null, null), events::add);
+
+        feed.shipCreated(ship(1, "Mars"));
+        feed.shipCreated(ship(2, "Earth"));
+        feed.shipUpdated(null, ship(1, "Earth"));
+        feed.shipDeleted(7);
+        await(events, 4);
+
+        assertEquals("RESYNC:subscribed,CREATED:1,DELETED:1,DELETED:7", describe(events));
+        assertEquals("Mars", events.get(1).getShip().getPlanet());
+    }
+
+    @Test
+    public void updateOutsideTheViewBeforeAndAfterIsNotSent() throws Exception {
+        List<ShipEvent> events = new CopyOnWriteArrayList<>();
+        feed.subscribe(ShipChangeFeed.filter(null, "mar", null, null, null, null, null, null, null, null, null, null), events::add);
+
+        Ship earth = ship(3, "Earth");
+        feed.shipUpdated(new ShipView(3L, earth.getName(), "Earth", earth.getShipType(), earth.getProdDate(), false, 0.5, 10, 1.5), ship(3, "Venus"));
+        feed.shipDeleted(8);
+        await(events, 2);
+
+        assertEquals("RESYNC:subscribed,DELETED:8", describe(events));
+    }
+
+    @Test
+    public void prodDateMatchesByDayLikeTheDateColumn() {
+        Calendar calendar = Calendar.getInstance();
+        calendar.clear();
+        calendar.set(3010, Calendar.JANUARY, 1);
+        long yearStart = calendar.getTimeInMillis();
+        calendar.set(Calendar.HOUR_OF_DAY, 13);
+        ShipView afternoon = new ShipView(1L, "Ship 1", "Mars", ShipType.MERCHANT, calendar.getTime(), false, 0.5, 10, 1.5);
+
+        assertTrue(ShipChangeFeed.filter(null, null, null, null, null, yearStart, null, null, null, null, null, null).test(afternoon));
+        calendar.clear();
+        calendar.set(3011, Calendar.JANUARY, 1);
+        assertFalse(ShipChangeFeed.filter(null, null, null, null, calendar.getTimeInMillis(), null, null, null, null, null, null, null).test(afternoon));
+    }
+
+    @Test
+    public void concurrentWritersAreDeliveredInSequenceOrder() throws Exception {
+        ShipChangeFeed roomyFeed = new ShipChangeFeed(10_000, 2);
+        try {
+            List<ShipEvent> events = new CopyOnWriteArrayList<>();
+            roomyFeed.subscribe(ship -> true, events::add);
+            Thread[] writers = new Thread[4];
+            for (int w = 0; w < writers.length; w++) {
+                long firstId = w * 1000L;
+                writers[w] = new Thread(() -> {
+                    for (long id = firstId; id < firstId + 500; id++) {
+                        roomyFeed.shipCreated(ship(id, "Mars"));
+                    }
+                });
+                writers[w].start();
+            }
+            for (Thread writer : writers) {
+                writer.join();
+            }
+            await(events, 1 + 4 * 500);
+
+            assertEquals(1 + 4 * 500, events.size());
+            for (int i = 1; i < events.size(); i++) {
+                assertTrue(events.get(i - 1).getSequence() < events.get(i).getSequence());
+            }
+        } finally {
+            roomyFeed.destroy();
+        }
+    }
+
+    @Test
+    public void slowSubscriberGetsResyncInsteadOfBacklog() throws Exception {
+        CountDownLatch sending = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<ShipEvent> events = new CopyOnWriteArrayList<>();
+        feed.subscribe(ship -> true, event -> {
+            sending.countDown();
+            release.await();
+            events.add(event);
+        });
+        assertTrue(sending.await(5, TimeUnit.SECONDS));
+
+        // the subscribed RESYNC is held by the blocked sender, deletes 1 to 4 fill the buffer
+        for (long id = 1; id <= 10; id++) {
+            feed.shipDeleted(id);
+        }
+        release.countDown();
+        await(events, 2);
+        Thread.sleep(50);
+
+        assertEquals("RESYNC:subscribed,RESYNC:overflow", describe(events));
+        assertEquals(1L, feed.snapshot().get("overflows"));
+    }
+
+    @Test
+    public void failingSubscriberIsRemoved() throws Exception {
+        feed.subscribe(ship -> true, event -> {
+            throw new IllegalStateException("connection closed");
+        });
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while ((Integer) feed.snapshot().get("subscribers") > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+
+        assertEquals(0, feed.snapshot().get("subscribers"));
+        feed.shipDeleted(1);
+        assertTrue((Long) feed.snapshot().get("failedSubscribers") == 1L);
+    }
+}
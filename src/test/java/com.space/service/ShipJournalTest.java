@@ -0,0 +1,105 @@
+package com.space.service;
+
+import com.space.model.Ship;
+import com.space.model.ShipType;
+import com.space.model.ShipView;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ShipJournalTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void replaysEveryKindOfRecord() throws Exception {
+        ShipJournal journal = new ShipJournal(new MappedJournal(folder.getRoot().toPath(), 4096, MappedJournal.Durability.NONE, 1), 16);
+        try {
+            journal.shipCreated(new Ship(1L, "Орион", "Mars", ShipType.MILITARY, new Date(33_000_000_000_000L), true, 0.55, 120, 1.25));
+            journal.shipUpdated(new Ship(1L, "Orion", "Mars", ShipType.MILITARY, new Date(33_000_000_000_000L), false, 0.6, 121, 2.5));
+            journal.shipDeleted(1L);
+            journal.ratingsRecomputed(3019);
+            journal.flush();
+
+            List<ShipJournalRecord> records = new ArrayList<>();
+            long next = journal.replay(0, records::add);
+
+            assertEquals(4, records.size());
+            ShipView created = records.get(0).getShip();
+            assertEquals(ShipJournalRecord.Type.CREATED, records.get(0).getType());
+            assertEquals("Орион", created.getName());
+            assertEquals(ShipType.MILITARY, created.getShipType());
+            assertEquals(33_000_000_000_000L, created.getProdDate().getTime());
+            assertEquals(Integer.valueOf(120), created.getCrewSize());
+            assertEquals(1.25, created.getRating(), 0);
+            assertFalse(records.get(1).getShip().getUsed());
+            assertEquals(ShipJournalRecord.Type.DELETED, records.get(2).getType());
+            assertNull(records.get(2).getShip());
+            assertEquals(3019, records.get(3).getReferenceYear());
+            assertEquals(records.get(3).getNextOffset(), next);
+            assertNull(journal.reader(next).next());
+        } finally {
+            journal.destroy();
+        }
+    }
+
+    @Test
+    public void failedAppendIsCountedNotThrown() throws Exception {
+        MappedJournal mapped = new MappedJournal(folder.getRoot().toPath(), 4096, MappedJournal.Durability.NONE, 1);
+        ShipJournal journal = new ShipJournal(mapped, 16);
+        try {
+            mapped.close();
+            journal.shipDeleted(1L);
+            journal.flush();
+
+            assertEquals(1L, journal.snapshot().get("appendFailures"));
+            assertEquals(0, journal.snapshot().get("pendingAppends"));
+        } finally {
+            journal.destroy();
+        }
+    }
+
+    @Test
+    public void groupWritesReturnOnceDurableAndShareFlushes() throws Exception {
+        MappedJournal mapped = new MappedJournal(folder.getRoot().toPath(), 64 * 1024, MappedJournal.Durability.GROUP, 5);
+        ShipJournal journal = new ShipJournal(mapped, 4);
+        ExecutorService writers = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> written = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                long id = i * 100;
+                written.add(writers.submit(() -> {
+                    for (long n = id; n < id + 20; n++) {
+                        journal.shipDeleted(n);
+                    }
+                }));
+            }
+            for (Future<?> future : written) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+
+            Map<String, Object> stats = journal.snapshot();
+            assertEquals(160L, stats.get("appends"));
+            assertEquals(mapped.getCommittedOffset(), stats.get("flushedOffset"));
+            assertTrue("batches: " + stats.get("appendBatches"), (Long) stats.get("appendBatches") < 160);
+        } finally {
+            writers.shutdownNow();
+            journal.destroy();
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.space.service;
+
+import com.space.controller.ShipOrder;
+import com.space.controller.utils.TestDataSourceConfig;
+import com.space.model.ShipType;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.context.jdbc.SqlConfig;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = {TestDataSourceConfig.class})
+@Sql(scripts = "classpath:test.sql", config = @SqlConfig(encoding = "UTF-8"))
+public class ShipQueryPlansTest {
+
+    private ShipService service;
+
+    private long stat(String name) {
+        Map<String, Object> stats = service.queryPlanStats();
+        return ((Number) stats.get(name)).longValue();
+    }
+
+    @Test
+    public void sameShapeWithOtherValuesReusesPlan() {
+        service.countByCriteria(null, "er", ShipType.MILITARY, null, null, null, null, null, null, null, null, null);
+        long misses = stat("misses");
+        long hits = stat("hits");
+
+        long merchants = service.countByCriteria(null, "ar", ShipType.MERCHANT, null, null, null, null, null, null, null, null, null);
+        long transports = service.countByCriteria(null, "ur", ShipType.TRANSPORT, null, null, null, null, null, null, null, null, null);
+
+        assertEquals(misses, stat("misses"));
+        assertEquals(hits + 2, stat("hits"));
+        assertEquals(service.findViewsByCriteria(null, "ar", ShipType.MERCHANT, null, null, null, null, null, null, null, null, null,
+                ShipOrder.ID, 0, 100).size(), merchants);
+        assertEquals(service.findViewsByCriteria(null, "ur", ShipType.TRANSPORT, null, null, null, null, null, null, null, null, null,
+                ShipOrder.ID, 0, 100).size(), transports);
+    }
+
+    @Test
+    public void newShapeOrOrderCompilesOnce() {
+        long misses = stat("misses");
+
+        service.findViewsByCriteria(null, null, null, true, null, null, 10, null, null, null, null, 3.0, ShipOrder.SPEED, 0, 5);
+        service.findViewsByCriteria(null, null, null, false, null, null, 20, null, null, null, null, 2.0, ShipOrder.SPEED, 1, 5);
+        service.findViewsByCriteria(null, null, null, false, null, null, 20, null, null, null, null, 2.0, ShipOrder.RATING, 0, 5);
+
+        assertEquals(misses + 2, stat("misses"));
+    }
+
+    @Autowired
+    public void setService(ShipService service) {
+        this.service = service;
+    }
+}
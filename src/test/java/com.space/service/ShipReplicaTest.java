@@ -0,0 +1,109 @@
+package com.space.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.space.controller.ShipOrder;
+import com.space.controller.utils.TestDataSourceConfig;
+import com.space.model.Ship;
+import com.space.model.ShipType;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.context.jdbc.SqlConfig;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import java.util.Date;
+
+import static org.junit.Assert.assertEquals;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = {TestDataSourceConfig.class})
+@Sql(scripts = "classpath:test.sql", config = @SqlConfig(encoding = "UTF-8"))
+public class ShipReplicaTest {
+
+    //after 00:00 01.01.3000, before 00:00 01.01.3011
+    private static final Long AFTER = 32503672800000L;
+    private static final Long BEFORE = 32850741600000L;
+
+    // name, planet, shipType, isUsed, after, before, minCrewSize, maxCrewSize, minSpeed, maxSpeed, minRating, maxRating
+    private static final Object[][] FILTERS = {
+            {null, null, null, null, null, null, null, null, null, null, null, null},
+            {"ra", null, null, null, null, null, null, null, null, null, null, null},
+            {null, "ur", null, null, null, null, null, null, null, null, null, null},
+            {null, null, ShipType.MILITARY, null, AFTER, BEFORE, null, null, null, null, null, null},
+            {null, null, ShipType.TRANSPORT, null, null, null, null, null, 0.3, 0.6, null, null},
+            {null, null, null, true, null, null, 100, 3000, null, null, 1.0, null},
+            {null, null, null, false, null, null, null, null, null, null, 0.5, 5.0},
+            {"er", "ar", ShipType.MERCHANT, null, null, null, null, null, null, null, null, null},
+            {null, null, null, null, null, null, 20, 1500, null, null, null, null},
+            {"no such ship", null, null, null, null, null, null, null, null, null, null, null},
+            // LIKE wildcards are matched literally
+            {"%", null, null, null, null, null, null, null, null, null, null, null},
+            {null, "_", null, null, null, null, null, null, null, null, null, null},
+    };
+
+    private ShipService service;
+    private ShipReplica replica;
+    private ObjectMapper mapper = new ObjectMapper();
+
+    @Before
+    public void setup() {
+        replica.reload();
+    }
+
+    @After
+    public void disableReplica() {
+        replica.setEnabled(false);
+    }
+
+    private void assertSameAsDatabase() throws Exception {
+        for (Object[] f : FILTERS) {
+            long expectedCount = service.countByCriteria((String) f[0], (String) f[1], (ShipType) f[2], (Boolean) f[3], (Long) f[4], (Long) f[5],
+                    (Integer) f[6], (Integer) f[7], (Double) f[8], (Double) f[9], (Double) f[10], (Double) f[11]);
+            long actualCount = replica.count((String) f[0], (String) f[1], (ShipType) f[2], (Boolean) f[3], (Long) f[4], (Long) f[5],
+                    (Integer) f[6], (Integer) f[7], (Double) f[8], (Double) f[9], (Double) f[10], (Double) f[11]);
+            assertEquals(expectedCount, actualCount);
+
+            for (ShipOrder order : ShipOrder.values()) {
+                for (int pageNumber = 0; pageNumber < 3; pageNumber++) {
+                    String expected = mapper.writeValueAsString(service.findViewsByCriteria((String) f[0], (String) f[1], (ShipType) f[2], (Boolean) f[3], (Long) f[4], (Long) f[5],
+                            (Integer) f[6], (Integer) f[7], (Double) f[8], (Double) f[9], (Double) f[10], (Double) f[11], order, pageNumber, 5));
+                    String actual = mapper.writeValueAsString(replica.find((String) f[0], (String) f[1], (ShipType) f[2], (Boolean) f[3], (Long) f[4], (Long) f[5],
+                            (Integer) f[6], (Integer) f[7], (Double) f[8], (Double) f[9], (Double) f[10], (Double) f[11], order, pageNumber, 5));
+                    assertEquals(expected, actual);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void replicaAnswersLikeDatabase() throws Exception {
+        assertSameAsDatabase();
+    }
+
+    @Test
+    public void replicaFollowsCreateUpdateDelete() throws Exception {
+        // the service keeps the replica in sync itself; reads go back to the database for the comparison
+        replica.setEnabled(true);
+        service.create(new Ship(null, "Rapture", "Earth", ShipType.MILITARY, new Date(32998274577071L), false, 0.8, 14, null));
+        service.update(5L, new Ship(null, null, "Saturn", null, null, null, 0.31, null, null));
+        service.deleteOne(7L);
+        service.deleteByCriteria(null, "Jupiter", null, null, null, null, null, null, null, null, null, null);
+        replica.setEnabled(false);
+
+        assertSameAsDatabase();
+    }
+
+    @Autowired
+    public void setService(ShipService service) {
+        this.service = service;
+    }
+
+    @Autowired
+    public void setReplica(ShipReplica replica) {
+        this.replica = replica;
+    }
+}
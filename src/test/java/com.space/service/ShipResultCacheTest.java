@@ -0,0 +1,121 @@
+package com.space.service;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ShipResultCacheTest {
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private String load(ShipResultCache cache, ShipResultCache.Key key, String value) {
+        return cache.get(key, () -> {
+            loads.incrementAndGet();
+            return value;
+        }, text -> 100);
+    }
+
+    @Test
+    public void equalParametersHit() {
+        ShipResultCache cache = new ShipResultCache(true, 10, 10_000, 60_000, 0);
+
+        load(cache, ShipResultCache.key("count", "Mars", null, 3), "a");
+        String cached = load(cache, ShipResultCache.key("count", "Mars", null, 3), "b");
+
+        assertEquals("a", cached);
+        assertEquals(1, loads.get());
+        assertEquals(1.0 / 2, cache.snapshot().get("hitRatio"));
+    }
+
+    @Test
+    public void writeInvalidatesEverything() {
+        ShipResultCache cache = new ShipResultCache(true, 10, 10_000, 60_000, 0);
+
+        load(cache, ShipResultCache.key("count", "Mars"), "before");
+        cache.invalidate();
+
+        assertEquals("after", load(cache, ShipResultCache.key("count", "Mars"), "after"));
+    }
+
+    @Test
+    public void resultLoadedDuringWriteIsNotServed() {
+        ShipResultCache cache = new ShipResultCache(true, 10, 10_000, 60_000, 0);
+        ShipResultCache.Key key = ShipResultCache.key("views", "Mars");
+
+        cache.get(key, () -> {
+            cache.invalidate();
+            return "stale";
+        }, text -> 100);
+
+        assertEquals("fresh", load(cache, key, "fresh"));
+    }
+
+    @Test
+    public void versionWithinTheReplicaLagIsNeitherStoredNorTagged() {
+        ShipResultCache cache = new ShipResultCache(true, 10, 10_000, 60_000, 60_000);
+        ShipResultCache.Key key = ShipResultCache.key("count", "Mars");
+
+        assertEquals(0, cache.settledVersion());
+        cache.invalidate();
+        load(cache, key, "replica");
+        load(cache, key, "replica");
+
+        assertEquals(2, loads.get());
+        assertEquals(-1, cache.settledVersion());
+        assertEquals(1L, cache.version());
+    }
+
+    @Test
+    public void leastRecentlyUsedIsEvictedByCountAndBytes() {
+        ShipResultCache cache = new ShipResultCache(true, 2, 250, 60_000, 0);
+
+        load(cache, ShipResultCache.key("count", 1), "one");
+        load(cache, ShipResultCache.key("count", 2), "two");
+        load(cache, ShipResultCache.key("count", 1), "one");
+        load(cache, ShipResultCache.key("count", 3), "three");
+
+        assertEquals(3, loads.get());
+        assertEquals("one", load(cache, ShipResultCache.key("count", 1), "reloaded"));
+        assertEquals("reloaded", load(cache, ShipResultCache.key("count", 2), "reloaded"));
+        assertEquals(2, cache.snapshot().get("entries"));
+        assertEquals(200L, cache.snapshot().get("bytes"));
+    }
+
+    @Test
+    public void expiredEntryIsReloaded() throws Exception {
+        ShipResultCache cache = new ShipResultCache(true, 10, 10_000, 1, 0);
+
+        load(cache, ShipResultCache.key("count", "Mars"), "old");
+        Thread.sleep(5);
+
+        assertEquals("new", load(cache, ShipResultCache.key("count", "Mars"), "new"));
+    }
+
+    @Test
+    public void containsOnlyServableEntriesWithoutCountingHits() {
+        ShipResultCache cache = new ShipResultCache(true, 10, 10_000, 60_000, 0);
+        ShipResultCache.Key key = ShipResultCache.key("count", "Mars");
+
+        assertFalse(cache.contains(key));
+        load(cache, key, "a");
+        assertTrue(cache.contains(key));
+        assertEquals(0L, cache.snapshot().get("hits"));
+
+        cache.invalidate();
+        assertFalse(cache.contains(key));
+    }
+
+    @Test
+    public void disabledCacheAlwaysLoads() {
+        ShipResultCache cache = new ShipResultCache(false, 10, 10_000, 60_000, 0);
+
+        load(cache, ShipResultCache.key("count", "Mars"), "a");
+        load(cache, ShipResultCache.key("count", "Mars"), "a");
+
+        assertEquals(2, loads.get());
+    }
+}
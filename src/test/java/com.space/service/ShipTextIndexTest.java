@@ -0,0 +1,90 @@
+package com.space.service;
+
+import com.space.controller.utils.ShipInfoTest;
+import com.space.controller.utils.TestDataSourceConfig;
+import com.space.controller.utils.TestsHelper;
+import com.space.model.Ship;
+import com.space.model.ShipType;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.context.jdbc.SqlConfig;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import java.util.Date;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = {TestDataSourceConfig.class})
+@Sql(scripts = "classpath:test.sql", config = @SqlConfig(encoding = "UTF-8"))
+public class ShipTextIndexTest {
+
+    private ShipTextIndex textIndex;
+    private TestsHelper testsHelper = new TestsHelper();
+
+    @Before
+    public void setup() {
+        textIndex.reload();
+    }
+
+    private Set<Long> namesContaining(String text) {
+        Set<Long> ids = new TreeSet<>();
+        for (ShipInfoTest ship : testsHelper.getAllShips()) {
+            if (ship.name.toLowerCase().contains(text.toLowerCase())) {
+                ids.add(ship.id);
+            }
+        }
+        return ids;
+    }
+
+    private Set<Long> planetsContaining(String text) {
+        Set<Long> ids = new TreeSet<>();
+        for (ShipInfoTest ship : testsHelper.getAllShips()) {
+            if (ship.planet.toLowerCase().contains(text.toLowerCase())) {
+                ids.add(ship.id);
+            }
+        }
+        return ids;
+    }
+
+    @Test
+    public void findsSameShipsAsSubstringScan() {
+        for (String text : new String[]{"Star", "ero", "ius", "or ", "ORION", "Excal", "zzz"}) {
+            assertEquals(text, namesContaining(text), new TreeSet<>(textIndex.findByName(text)));
+        }
+        for (String text : new String[]{"tur", "Mar", "EPTUNE", "plu"}) {
+            assertEquals(text, planetsContaining(text), new TreeSet<>(textIndex.findByPlanet(text)));
+        }
+    }
+
+    @Test
+    public void shortTextFallsBackToScan() {
+        assertNull(textIndex.findByName("ra"));
+        assertNull(textIndex.findByPlanet(null));
+    }
+
+    @Test
+    public void followsWrites() {
+        textIndex.put(new Ship(41L, "Starfury", "Titan", ShipType.MILITARY, new Date(), false, 0.5, 3, 1.0));
+        textIndex.put(new Ship(40L, "Destroyer", "Mercury", ShipType.MILITARY, new Date(), false, 0.92, 4880, 24.53));
+        textIndex.remove(39L);
+
+        assertTrue(textIndex.findByName("Starf").contains(41L));
+        assertTrue(!textIndex.findByName("Star D").contains(40L));
+        assertTrue(textIndex.findByName("Tardis").isEmpty());
+        assertTrue(textIndex.findByPlanet("Titan").contains(41L));
+    }
+
+    @Autowired
+    public void setTextIndex(ShipTextIndex textIndex) {
+        this.textIndex = textIndex;
+    }
+}
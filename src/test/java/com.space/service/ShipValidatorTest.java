@@ -0,0 +1,122 @@
+package com.space.service;
+
+import com.space.model.Ship;
+import com.space.model.ShipType;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.GregorianCalendar;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class ShipValidatorTest {
+
+    private static final String[] TEXTS = {null, "", " ", " \t\n", "a", " a ", "12345678901234567890123456789012345678901234567890",
+            "123456789012345678901234567890123456789012345678901", "    "};
+    private static final Double[] SPEEDS = {null, 0.0, 0.0099, 0.01, 0.5, 0.99, 0.9901, 1.0, -0.5, Double.NaN};
+    private static final Integer[] CREW_SIZES = {null, -1, 0, 1, 5000, 9999, 10000};
+
+    private ShipValidator validator = new ShipValidator();
+
+    // ShipService.dataIsValid as it was before the rules were compiled
+    private static boolean reference(Ship ship, boolean notNullFields) {
+        if (ship == null) {
+            return false;
+        }
+        if (notNullFields && Arrays.asList(ship.getName(), ship.getPlanet(), ship.getShipType(), ship.getProdDate(), ship.getSpeed(), ship.getCrewSize())
+                .contains(null)) {
+            return false;
+        }
+        if (ship.getName() != null && !(!ship.getName().trim().equals("") && ship.getName().length() <= 50)) {
+            return false;
+        }
+        if (ship.getPlanet() != null && !(!ship.getPlanet().trim().equals("") && ship.getPlanet().length() <= 50)) {
+            return false;
+        }
+        if (ship.getProdDate() != null) {
+            Calendar calendar = GregorianCalendar.getInstance();
+            calendar.setTime(ship.getProdDate());
+            if (calendar.get(Calendar.YEAR) < 2800 || calendar.get(Calendar.YEAR) > 3019) {
+                return false;
+            }
+        }
+        if (ship.getSpeed() != null && !(ship.getSpeed() >= 0.01 && ship.getSpeed() <= 0.99)) {
+            return false;
+        }
+        return ship.getCrewSize() == null || (ship.getCrewSize() >= 1 && ship.getCrewSize() <= 9999);
+    }
+
+    private static Date[] prodDates() {
+        List<Date> dates = new ArrayList<>();
+        dates.add(null);
+        for (int year : new int[]{1970, 2799, 2800, 3000, 3019, 3020}) {
+            Calendar calendar = GregorianCalendar.getInstance();
+            calendar.clear();
+            calendar.set(year, Calendar.JANUARY, 1, 0, 0, 0);
+            dates.add(new Date(calendar.getTimeInMillis() - 1));
+            dates.add(new Date(calendar.getTimeInMillis()));
+            dates.add(new Date(calendar.getTimeInMillis() + 1));
+        }
+        dates.add(new Date(-1));
+        return dates.toArray(new Date[0]);
+    }
+
+    @Test
+    public void agreesWithPreviousRulesOnBoundaries() {
+        Date[] prodDates = prodDates();
+        for (boolean notNullFields : new boolean[]{true, false}) {
+            for (String text : TEXTS) {
+                for (Date prodDate : prodDates) {
+                    for (Double speed : SPEEDS) {
+                        for (Integer crewSize : CREW_SIZES) {
+                            Ship byName = new Ship(null, text, "Earth", ShipType.MILITARY, prodDate, false, speed, crewSize, null);
+                            Ship byPlanet = new Ship(null, "Name", text, null, prodDate, null, speed, crewSize, null);
+                            assertEquals(reference(byName, notNullFields), validator.isValid(byName, notNullFields));
+                            assertEquals(reference(byPlanet, notNullFields), validator.isValid(byPlanet, notNullFields));
+                        }
+                    }
+                }
+            }
+        }
+        assertEquals(reference(null, false), validator.isValid(null, false));
+    }
+
+    @Test
+    public void agreesWithPreviousRulesOnRandomDates() {
+        Random random = new Random(42);
+        for (int i = 0; i < 100_000; i++) {
+            Date prodDate = new Date(26_000_000_000_000L + (long) (random.nextDouble() * 8_000_000_000_000L));
+            Ship ship = new Ship(null, "Name", "Planet", ShipType.TRANSPORT, prodDate, true, 0.5, 10, null);
+            assertEquals(reference(ship, true), validator.isValid(ship, true));
+        }
+    }
+
+    @Test
+    public void validateAllMarksValidShipsAndCountsRejects() {
+        Date prodDate = new Date(32_000_000_000_000L);
+        List<Ship> ships = Arrays.asList(
+                new Ship(null, "Name", "Planet", ShipType.MERCHANT, prodDate, false, 0.5, 10, null),
+                new Ship(null, "", "Planet", ShipType.MERCHANT, prodDate, false, 0.5, 10, null),
+                null,
+                new Ship(null, "Name", "Planet", ShipType.MERCHANT, prodDate, false, 0.5, 0, null),
+                new Ship(null, "Name", "Planet", null, prodDate, false, 0.5, 10, null));
+
+        BitSet valid = validator.validateAll(ships, true);
+        Map<String, Object> stats = validator.snapshot();
+
+        assertEquals("{0}", valid.toString());
+        assertEquals(5L, stats.get("checked"));
+        assertEquals(1L, stats.get(ShipValidator.Rule.NAME.name()));
+        assertEquals(1L, stats.get(ShipValidator.Rule.NO_BODY.name()));
+        assertEquals(1L, stats.get(ShipValidator.Rule.CREW_SIZE.name()));
+        assertEquals(1L, stats.get(ShipValidator.Rule.MISSING_FIELD.name()));
+        assertEquals(0L, stats.get(ShipValidator.Rule.SPEED.name()));
+    }
+}